@@ -0,0 +1,249 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+
+/**
+ *
+ * @author Gayatri
+ * Aho-Corasick automaton over the dictionary, used to solve a WordPuzzle by streaming
+ * every line of the grid through it once.
+ *
+ * Every row, column, diagonal and anti-diagonal is read in both directions, which
+ * covers the 8 directions of WordPuzzle.findWords. At each cell the automaton reports
+ * all dictionary words that end there, so the solve is a linear pass over each line
+ * whatever the size of the dictionary.
+ *
+ * The trie is stored breadth first in flat arrays (edges of state s are
+ * labels/targets[ first[ s ] .. first[ s + 1 ] ), sorted by label) with a failure link
+ * and a dictionary suffix link per state.
+ *
+ */
+
+public class AhoCorasick {
+
+	/**
+	 * Builds the automaton from a text file of whitespace separated words.
+	 * @param file the dictionary file
+	 * @return the automaton
+	 * @throws IOException if the file cannot be read
+	 */
+	public static AhoCorasick load(File file) throws IOException {
+		return new AhoCorasick(DawgDictionary.readSortedWords(file));
+	}
+
+	/**
+	 * Builds the automaton.
+	 * @param sortedWords the dictionary words in ascending String order
+	 */
+	public AhoCorasick(ArrayList<String> sortedWords) {
+		buildTrie(sortedWords);
+		buildLinks();
+	}
+
+	/**
+	 * Finds words from the grid that match with the words in the dictionary.
+	 * The words found are the same as those of WordPuzzle.findWords, including repeats,
+	 * but they are listed line by line rather than start cell by start cell.
+	 * @param grid 2D character array of WordPuzzle
+	 * @return A list of all words that matches from grid to dictionary
+	 */
+	public ArrayList<String> findWords(char[][] grid) {
+		return findWords(new CharGrid(grid));
+	}
+
+	/**
+	 * Finds words from the grid that match with the words in the dictionary, line by line.
+	 * @param grid word grid of WordPuzzle
+	 * @return A list of all words that matches from grid to dictionary
+	 */
+	public ArrayList<String> findWords(Grid grid) {
+		ArrayList<String> wordsFound = new ArrayList<String>();
+		int rowCount = grid.rows();
+		int colCount = grid.cols();
+
+		// Every line starts at a border cell whose predecessor in its direction is off the grid
+		for (int d = 1; d <= WordPuzzle.DIRECTIONS; d++) {
+			for (int row = 0; row < rowCount; row++) {
+				for (int col = 0; col < colCount; col++) {
+					if (row > 0 && row < rowCount - 1 && col == 1)
+						col = colCount - 1;		// skip the interior of the row
+					if (isLineStart(row, col, d, rowCount, colCount))
+						scanLine(grid, row, col, d, wordsFound);
+				}
+			}
+		}
+		return wordsFound;
+	}
+
+	/**
+	 * Streams one line of the grid through the automaton.
+	 * Single letter words are only reported for the forward direction, as in findWords.
+	 * @param grid word grid of WordPuzzle
+	 * @param row row of the first cell of the line
+	 * @param col column of the first cell of the line
+	 * @param direction one of the 8 WordPuzzle directions
+	 * @param wordsFound list the matching words are appended to
+	 */
+	public void scanLine(Grid grid, int row, int col, int direction, ArrayList<String> wordsFound) {
+		int rowCount = grid.rows();
+		int colCount = grid.cols();
+		int dr = WordPuzzle.rowDelta[direction];
+		int dc = WordPuzzle.colDelta[direction];
+		int minLength = direction == WordPuzzle.forwardDirection ? 1 : 2;
+
+		int state = 0;
+		for (int r = row, c = col; r >= 0 && r < rowCount && c >= 0 && c < colCount; r += dr, c += dc) {
+			state = next(state, grid.get(r, c));
+			for (int out = isWord(state) ? state : dictLink[state]; out > 0; out = dictLink[out]) {
+				int length = depth[out];
+				if (length >= minLength)
+					wordsFound.add(grid.read(r - dr * (length - 1), c - dc * (length - 1), length, direction));
+			}
+		}
+	}
+
+	/**
+	 * @return number of states of the automaton
+	 */
+	public int stateCount() {
+		return depth.length;
+	}
+
+	private static boolean isLineStart(int row, int col, int d, int rowCount, int colCount) {
+		int r = row - WordPuzzle.rowDelta[d];
+		int c = col - WordPuzzle.colDelta[d];
+		return r < 0 || r >= rowCount || c < 0 || c >= colCount;
+	}
+
+	/**
+	 * Goto function with failure transitions: the longest dictionary prefix that is a
+	 * suffix of the text read so far, extended by ch.
+	 */
+	private int next(int state, char ch) {
+		for (;;) {
+			int t = step(state, ch);
+			if (t >= 0)
+				return t;
+			if (state == 0)
+				return 0;
+			state = fail[state];
+		}
+	}
+
+	private int step(int state, char ch) {
+		int low = first[state];
+		int high = first[state + 1] - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			if (labels[mid] < ch)
+				low = mid + 1;
+			else if (labels[mid] > ch)
+				high = mid - 1;
+			else
+				return targets[mid];
+		}
+		return -1;
+	}
+
+	private boolean isWord(int state) {
+		return (words[state >>> 6] & (1L << state)) != 0;
+	}
+
+	/**
+	 * Builds the trie as first-child/next-sibling lists, then numbers the states
+	 * breadth first into the flat edge arrays. Sorted input keeps siblings sorted.
+	 */
+	private void buildTrie(ArrayList<String> sortedWords) {
+		int capacity = 1024;
+		int[] firstChild = new int[capacity];
+		int[] lastChild = new int[capacity];
+		int[] nextSibling = new int[capacity];
+		char[] label = new char[capacity];
+		boolean[] terminal = new boolean[capacity];
+		int nodes = 1;
+		Arrays.fill(firstChild, -1);
+		Arrays.fill(nextSibling, -1);
+
+		for (String word : sortedWords) {
+			int node = 0;
+			for (int i = 0; i < word.length(); i++) {
+				char ch = word.charAt(i);
+				int child = lastChild[node] > 0 && label[lastChild[node]] == ch ? lastChild[node] : -1;
+				if (child < 0) {
+					if (nodes == capacity) {
+						capacity *= 2;
+						firstChild = Arrays.copyOf(firstChild, capacity);
+						Arrays.fill(firstChild, nodes, capacity, -1);
+						lastChild = Arrays.copyOf(lastChild, capacity);
+						nextSibling = Arrays.copyOf(nextSibling, capacity);
+						Arrays.fill(nextSibling, nodes, capacity, -1);
+						label = Arrays.copyOf(label, capacity);
+						terminal = Arrays.copyOf(terminal, capacity);
+					}
+					child = nodes++;
+					label[child] = ch;
+					if (firstChild[node] < 0)
+						firstChild[node] = child;
+					else
+						nextSibling[lastChild[node]] = child;
+					lastChild[node] = child;
+				}
+				node = child;
+			}
+			terminal[node] = true;
+		}
+
+		// Breadth first numbering; the children of a state get consecutive numbers
+		int[] order = new int[nodes];
+		first = new int[nodes + 1];
+		labels = new char[nodes - 1];
+		targets = new int[nodes - 1];
+		depth = new short[nodes];
+		words = new long[(nodes + 63) / 64];
+
+		int tail = 1;
+		for (int head = 0; head < nodes; head++) {
+			int node = order[head];
+			first[head] = tail - 1;
+			if (terminal[node])
+				words[head >>> 6] |= 1L << head;
+			for (int child = firstChild[node]; child >= 0; child = nextSibling[child]) {
+				order[tail] = child;
+				labels[tail - 1] = label[child];
+				targets[tail - 1] = tail;
+				depth[tail] = (short) (depth[head] + 1);
+				tail++;
+			}
+		}
+		first[nodes] = nodes - 1;
+	}
+
+	/**
+	 * Failure and dictionary suffix links, computed breadth first so that the
+	 * links of every shallower state are ready.
+	 */
+	private void buildLinks() {
+		int states = depth.length;
+		fail = new int[states];
+		dictLink = new int[states];
+		dictLink[0] = -1;
+
+		for (int s = 0; s < states; s++) {
+			for (int e = first[s]; e < first[s + 1]; e++) {
+				int t = targets[e];
+				fail[t] = s == 0 ? 0 : next(fail[s], labels[e]);
+				dictLink[t] = isWord(fail[t]) ? fail[t] : dictLink[fail[t]];
+			}
+		}
+	}
+
+	private int[] first;		// first edge of each state, plus one past the last edge
+	private char[] labels;		// edge labels, sorted within a state
+	private int[] targets;		// edge target states
+	private short[] depth;		// length of the prefix spelled by each state
+	private long[] words;		// bit set of states that spell a whole word
+	private int[] fail;			// longest proper suffix state
+	private int[] dictLink;		// nearest suffix state that is a word, or -1
+}
@@ -0,0 +1,350 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ *
+ * @author Gayatri
+ * Solves a stream of grids against one dictionary that is loaded once.
+ *
+ * Every grid is solved on its own virtual thread when the JVM has them (Java 21 and
+ * later), else on a pool of one platform thread per processor. A semaphore bounds the
+ * number of grids in flight, so a fast producer blocks instead of queueing the whole input.
+ * Each result is handed to a ResultListener as soon as its grid is solved, so results
+ * stream out in completion order, not input order.
+ *
+ * Grids are solved with GridScanner over a DawgDictionary, which is immutable and can
+ * be shared by every thread.
+ *
+ */
+
+public class BatchSolver implements AutoCloseable {
+
+	/**
+	 * Builds the dictionary and solves a file of grids, printing each result as it comes.
+	 * Usage: java BatchSolver dictionary.txt grids.txt [max concurrent grids]
+	 * Grids are separated by blank lines; each other line is one row. "-" reads stdin.
+	 */
+	public static void main(String[] args) throws Exception {
+		if (args.length < 2) {
+			System.out.println("Usage: java BatchSolver <dictionary file> <grid file or -> [max concurrent grids]");
+			return;
+		}
+		DawgDictionary dictionary = DawgDictionary.load(new File(args[0]));
+		int maxConcurrency = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_MAX_CONCURRENCY;
+
+		try (BatchSolver solver = new BatchSolver(dictionary, maxConcurrency);
+				BufferedReader in = args[1].equals("-") ? new BufferedReader(new InputStreamReader(System.in))
+						: new BufferedReader(new FileReader(args[1]))) {
+			Stats stats = solver.solve(in, new ResultListener() {
+				public synchronized void solved(long id, ArrayList<String> words, long nanos) {
+					System.out.println(id + "\t" + words.size() + "\t" + String.join(" ", words));
+				}
+
+				public synchronized void failed(long id, Throwable e) {
+					System.out.println(id + "\tfailed\t" + e);
+				}
+			});
+			System.out.println((solver.usesVirtualThreads() ? "Virtual" : "Platform") + " threads, " + stats);
+		}
+	}
+
+	/**
+	 * Receives the result of every grid, on the thread that solved it.
+	 */
+	public interface ResultListener {
+
+		/**
+		 * An exception thrown from here goes to the thread's uncaught exception handler; the
+		 * grid still counts as solved and failed is not called.
+		 * @param id position of the grid in the input, from 0
+		 * @param words the words found, in WordPuzzle.findWords order, which GridScanner keeps
+		 * @param nanos time taken to solve the grid
+		 */
+		void solved(long id, ArrayList<String> words, long nanos);
+
+		/**
+		 * @param id position of the grid in the input, from 0
+		 * @param e what the solver threw
+		 */
+		default void failed(long id, Throwable e) {
+		}
+	}
+
+	/**
+	 * Source of grids for solve; returns null after the last grid.
+	 */
+	public interface GridSource {
+		char[][] next() throws IOException, InterruptedException;
+	}
+
+	/**
+	 * Construct a batch solver.
+	 * @param dictionary the dictionary every grid is solved against
+	 * @param maxConcurrency most grids solved at the same time
+	 */
+	public BatchSolver(DawgDictionary dictionary, int maxConcurrency) {
+		if (maxConcurrency < 1)
+			throw new IllegalArgumentException("maxConcurrency must be at least 1: " + maxConcurrency);
+		this.scanner = new GridScanner(dictionary);
+		this.maxConcurrency = maxConcurrency;
+		this.permits = new Semaphore(maxConcurrency);
+
+		ExecutorService virtual = null;
+		try {
+			// Java 21 API, looked up so that the class still runs on older JVMs
+			virtual = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		}
+		catch (ReflectiveOperationException e) {
+			// no virtual threads, fall back to platform threads
+		}
+		virtualThreads = virtual != null;
+		// Platform threads beyond the processors only add stacks; the semaphore still bounds the grids in flight
+		executor = virtualThreads ? virtual : Executors.newFixedThreadPool(Math.min(maxConcurrency, Runtime.getRuntime().availableProcessors()));
+	}
+
+	/**
+	 * Solves every grid of a reader: grids are separated by blank lines and each other
+	 * line is one row of letters. Grids are read as they are needed.
+	 * @param in the grids
+	 * @param listener receives every result
+	 * @return statistics of the batch
+	 * @throws IOException if the input cannot be read or a grid is not rectangular
+	 * @throws InterruptedException if interrupted while waiting for a free slot
+	 */
+	public Stats solve(BufferedReader in, ResultListener listener) throws IOException, InterruptedException {
+		return solve(() -> readGrid(in), listener);
+	}
+
+	/**
+	 * Solves grids taken from a queue until the end marker is taken.
+	 * @param queue the grids
+	 * @param end the marker that ends the batch, compared by identity
+	 * @param listener receives every result
+	 * @return statistics of the batch
+	 * @throws InterruptedException if interrupted while waiting for a grid or a free slot
+	 */
+	public Stats solve(BlockingQueue<char[][]> queue, char[][] end, ResultListener listener) throws InterruptedException {
+		try {
+			return solve(() -> {
+				char[][] grid = queue.take();
+				return grid == end ? null : grid;
+			}, listener);
+		}
+		catch (IOException e) {
+			throw new IllegalStateException(e);		// a queue does not throw it
+		}
+	}
+
+	/**
+	 * Solves every grid of a source and waits for the last one.
+	 * Only one batch may run at a time.
+	 * @param source the grids
+	 * @param listener receives every result
+	 * @return statistics of the batch
+	 * @throws IOException if the source throws it; grids already submitted still finish
+	 * @throws InterruptedException if interrupted while waiting for a grid or a free slot
+	 */
+	public synchronized Stats solve(GridSource source, ResultListener listener) throws IOException, InterruptedException {
+		Stats stats = new Stats();
+		long start = System.nanoTime();
+		try {
+			long id = 0;
+			for (char[][] grid = source.next(); grid != null; grid = source.next())
+				submit(id++, grid, listener, stats);
+		}
+		finally {
+			// every permit is back once the last grid is done
+			permits.acquire(maxConcurrency);
+			permits.release(maxConcurrency);
+			stats.elapsedNanos = System.nanoTime() - start;
+		}
+		return stats;
+	}
+
+	/**
+	 * @return true if grids are solved on virtual threads
+	 */
+	public boolean usesVirtualThreads() {
+		return virtualThreads;
+	}
+
+	/**
+	 * Shuts the worker threads down.
+	 */
+	public void close() {
+		executor.shutdown();
+	}
+
+	private void submit(long id, char[][] grid, ResultListener listener, Stats stats) throws InterruptedException {
+		permits.acquire();
+		try {
+			executor.execute(() -> {
+				try {
+					ArrayList<String> words;
+					long nanos;
+					try {
+						long start = System.nanoTime();
+						words = scanner.findWords(grid);
+						nanos = System.nanoTime() - start;
+					}
+					catch (Throwable e) {
+						stats.failures.incrementAndGet();
+						listener.failed(id, e);
+						return;
+					}
+					stats.record(nanos, words.size());
+					// Outside the solve: a listener that throws has not failed the grid
+					listener.solved(id, words, nanos);
+				}
+				finally {
+					permits.release();
+				}
+			});
+		}
+		catch (RuntimeException e) {
+			permits.release();		// rejected, e.g. after close
+			throw e;
+		}
+	}
+
+	/**
+	 * Reads the next grid, skipping blank lines before it.
+	 * @return the grid, or null at the end of the input
+	 */
+	private static char[][] readGrid(BufferedReader in) throws IOException {
+		ArrayList<char[]> rows = new ArrayList<char[]>();
+		String line;
+		while ((line = in.readLine()) != null) {
+			line = line.trim();
+			if (line.isEmpty()) {
+				if (rows.isEmpty())
+					continue;
+				break;
+			}
+			if (!rows.isEmpty() && line.length() != rows.get(0).length)
+				throw new IOException("Grid rows of different lengths: " + line);
+			rows.add(line.toCharArray());
+		}
+		return rows.isEmpty() ? null : rows.toArray(new char[rows.size()][]);
+	}
+
+	/**
+	 * Throughput and latency of one batch. Latency is the time to solve one grid,
+	 * not counting the time it waited for a free slot.
+	 *
+	 * Latencies are counted in a fixed histogram, so a batch of any length takes the same
+	 * memory. Each power of two is split into 16 buckets, so a quantile is at most 1/16
+	 * above the exact one; the maximum is kept exactly.
+	 */
+	public static class Stats {
+
+		/**
+		 * @return number of grids solved
+		 */
+		public synchronized int getGrids() {
+			return count;
+		}
+
+		/**
+		 * @return number of grids whose solver threw
+		 */
+		public long getFailures() {
+			return failures.get();
+		}
+
+		/**
+		 * @return number of words found in all grids
+		 */
+		public long getWords() {
+			return words.get();
+		}
+
+		/**
+		 * @return grids solved per second of the whole batch
+		 */
+		public synchronized double getThroughput() {
+			return elapsedNanos == 0 ? 0 : count * 1e9 / elapsedNanos;
+		}
+
+		/**
+		 * @param q a quantile between 0 and 1, e.g. 0.99
+		 * @return the latency in nanoseconds that q of the grids did not exceed
+		 */
+		public synchronized long getLatencyQuantile(double q) {
+			if (count == 0)
+				return 0;
+			long rank = Math.min(count, Math.max(1, (long) Math.ceil(q * count)));
+			long seen = 0;
+			for (int i = 0; i < buckets.length; i++) {
+				seen += buckets[i];
+				if (seen >= rank)
+					return Math.min(bucketTop(i), max);
+			}
+			return max;
+		}
+
+		@Override
+		public synchronized String toString() {
+			return String.format("%d grids (%d failed), %d words in %d ms: %.1f grids/s, latency p50 %.3f ms, p99 %.3f ms, max %.3f ms",
+					count, getFailures(), getWords(), elapsedNanos / 1000000, getThroughput(),
+					getLatencyQuantile(0.5) / 1e6, getLatencyQuantile(0.99) / 1e6, getLatencyQuantile(1) / 1e6);
+		}
+
+		private synchronized void record(long nanos, int wordCount) {
+			buckets[bucket(nanos)]++;
+			count++;
+			max = Math.max(max, nanos);
+			words.addAndGet(wordCount);
+		}
+
+		/**
+		 * Values below 16 have a bucket each; above, the top 5 bits pick the bucket
+		 * among the 16 of the value's power of two.
+		 */
+		private static int bucket(long nanos) {
+			if (nanos < SUB_BUCKETS)
+				return (int) Math.max(0, nanos);
+			int shift = 63 - Long.numberOfLeadingZeros(nanos) - SUB_BUCKET_BITS;
+			return (shift + 1) * SUB_BUCKETS + (int) (nanos >>> shift) - SUB_BUCKETS;
+		}
+
+		/**
+		 * @return the largest value that falls in bucket i
+		 */
+		private static long bucketTop(int i) {
+			if (i < SUB_BUCKETS)
+				return i;
+			int shift = i / SUB_BUCKETS - 1;
+			long top = ((long) (SUB_BUCKETS + i % SUB_BUCKETS + 1) << shift) - 1;
+			return top < 0 ? Long.MAX_VALUE : top;
+		}
+
+		private static final int SUB_BUCKET_BITS = 4;
+		private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+		private final long[] buckets = new long[(64 - SUB_BUCKET_BITS) * SUB_BUCKETS];
+		private long max;
+		private int count;
+		private final AtomicLong words = new AtomicLong();
+		private final AtomicLong failures = new AtomicLong();
+		private long elapsedNanos;
+	}
+
+	private static final int DEFAULT_MAX_CONCURRENCY = 64;
+
+	private final GridScanner scanner;
+	private final int maxConcurrency;
+	private final Semaphore permits;
+	private final ExecutorService executor;
+	private final boolean virtualThreads;
+}
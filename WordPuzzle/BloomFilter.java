@@ -0,0 +1,122 @@
+/**
+ *
+ * @author Gayatri
+ * Blocked Bloom filter. Every key sets and tests all of its bits inside one 512 bit
+ * block (one cache line), so a lookup costs a single memory access however many
+ * hash functions are used.
+ *
+ * Keys are hashed with their hashCode, stretched to 64 bits by the MurmurHash3
+ * finalizer: the high half picks the block and the low half derives the bit positions
+ * by double hashing. The blocks fill unevenly, so the filter is given more bits than a
+ * classic one; still, rates much below 0.001 are not reached. Filters are not
+ * thread-safe to add to, but any number of threads may query a filter that is no
+ * longer being added to.
+ *
+ */
+
+public class BloomFilter {
+
+	/**
+	 * Construct a filter sized for a number of keys.
+	 * @param expectedKeys number of keys that will be added
+	 * @param falsePositiveRate the wanted rate of mightContain answering true for an absent key
+	 */
+	public BloomFilter(int expectedKeys, double falsePositiveRate) {
+		if (!(falsePositiveRate > 0 && falsePositiveRate < 1))
+			throw new IllegalArgumentException("falsePositiveRate must be between 0 and 1: " + falsePositiveRate);
+		int n = Math.max(1, expectedKeys);
+		double ln2 = Math.log(2);
+		// classic optimum, plus 10% per decade of the rate for the uneven fill of blocks
+		double overhead = 1 - 0.1 * Math.log10(falsePositiveRate);
+		double bits = -n * Math.log(falsePositiveRate) / (ln2 * ln2) * overhead;
+		long blockCount = Math.max(1, (long) Math.ceil(bits / BLOCK_BITS));
+		if (blockCount > Integer.MAX_VALUE / BLOCK_LONGS)
+			throw new IllegalArgumentException("Bloom filter too large for " + expectedKeys + " keys");
+
+		blocks = (int) blockCount;
+		hashCount = (int) Math.max(1, Math.min(MAX_HASHES, Math.round(bits / overhead / n * ln2)));
+		words = new long[blocks * BLOCK_LONGS];
+	}
+
+	/**
+	 * @param key the key to add
+	 */
+	public void add(Object key) {
+		long h = mix(key.hashCode());
+		int base = block(h);
+		int h1 = (int) h;
+		int h2 = (int) (h >>> 16) | 1;
+		for (int i = 0; i < hashCount; i++) {
+			int bit = (h1 + i * h2) & (BLOCK_BITS - 1);
+			words[base + (bit >>> 6)] |= 1L << bit;
+		}
+	}
+
+	/**
+	 * @param key the key to test
+	 * @return false if key was certainly never added, true if it may have been
+	 */
+	public boolean mightContain(Object key) {
+		return mightContainHash(key.hashCode());
+	}
+
+	/**
+	 * Tests a key by its hashCode alone, e.g. a String hash computed over a char slice.
+	 * @param hashCode hashCode of the key to test
+	 * @return false if no key with that hashCode was added, true if one may have been
+	 */
+	public boolean mightContainHash(int hashCode) {
+		long h = mix(hashCode);
+		int base = block(h);
+		int h1 = (int) h;
+		int h2 = (int) (h >>> 16) | 1;
+		for (int i = 0; i < hashCount; i++) {
+			int bit = (h1 + i * h2) & (BLOCK_BITS - 1);
+			if ((words[base + (bit >>> 6)] & (1L << bit)) == 0)
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * @return size of the filter in bits
+	 */
+	public long bitSize() {
+		return (long) words.length * 64;
+	}
+
+	/**
+	 * @return number of bits set and tested per key
+	 */
+	public int hashCount() {
+		return hashCount;
+	}
+
+	/**
+	 * First word of the block of a hash, by multiplying the high half by the block count.
+	 */
+	private int block(long h) {
+		return (int) (((h >>> 32) * blocks) >>> 32) * BLOCK_LONGS;
+	}
+
+	/**
+	 * MurmurHash3 fmix64, so that close hashCodes land in unrelated blocks and bits.
+	 */
+	private static long mix(int hashCode) {
+		long h = hashCode;
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+
+	private static final int BLOCK_BITS = 512;
+	private static final int BLOCK_LONGS = BLOCK_BITS / 64;
+	private static final int MAX_HASHES = 16;
+
+	private final long[] words;
+	private final int blocks;
+	private final int hashCount;
+}
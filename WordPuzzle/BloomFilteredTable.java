@@ -0,0 +1,144 @@
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ *
+ * @author Gayatri
+ * A LookupTable behind a BloomFilter of its keys. Most lookups of a word puzzle scan
+ * are misses; the filter rejects nearly all of them with one cache line read, before
+ * the table is probed and any key is compared.
+ *
+ * The filter is built once from the keys of the table, so the table must not change
+ * afterwards. Lookups are counted, which shows how much work the filter saves:
+ * hits are keys found in the table, rejected are misses answered by the filter alone,
+ * and false positives are misses that passed the filter and still probed the table.
+ *
+ */
+
+public class BloomFilteredTable<AnyType> implements LookupTable<AnyType> {
+
+	/**
+	 * @param table the table to front
+	 * @param keys all keys of the table
+	 * @param keyCount number of keys
+	 * @param falsePositiveRate the wanted false positive rate of the filter
+	 */
+	public BloomFilteredTable(LookupTable<AnyType> table, Iterable<? extends AnyType> keys, int keyCount, double falsePositiveRate) {
+		this.table = table;
+		filter = new BloomFilter(keyCount, falsePositiveRate);
+		for (AnyType key : keys)
+			filter.add(key);
+	}
+
+	public boolean contains(AnyType x) {
+		if (!filter.mightContain(x)) {
+			rejected.increment();
+			return false;
+		}
+		boolean found = table.contains(x);
+		(found ? hits : falsePositives).increment();
+		return found;
+	}
+
+	public AnyType get(AnyType key) {
+		if (!filter.mightContain(key)) {
+			rejected.increment();
+			return null;
+		}
+		AnyType value = table.get(key);
+		(value != null ? hits : falsePositives).increment();
+		return value;
+	}
+
+	/**
+	 * Tests the filter with the String hash of the slice, so a rejected miss costs no String.
+	 */
+	@Override
+	public boolean contains(char[] chars, int offset, int length) {
+		if (!filter.mightContainHash(hash(chars, offset, length))) {
+			rejected.increment();
+			return false;
+		}
+		boolean found = table.contains(chars, offset, length);
+		(found ? hits : falsePositives).increment();
+		return found;
+	}
+
+	@Override
+	public AnyType get(char[] chars, int offset, int length) {
+		if (!filter.mightContainHash(hash(chars, offset, length))) {
+			rejected.increment();
+			return null;
+		}
+		AnyType value = table.get(chars, offset, length);
+		(value != null ? hits : falsePositives).increment();
+		return value;
+	}
+
+	/**
+	 * String.hashCode of the slice, the hash the filter was built with for String keys.
+	 */
+	private static int hash(char[] chars, int offset, int length) {
+		int h = 0;
+		for (int i = offset; i < offset + length; i++)
+			h = 31 * h + chars[i];
+		return h;
+	}
+
+	/**
+	 * @return the filter in front of the table
+	 */
+	public BloomFilter getFilter() {
+		return filter;
+	}
+
+	/**
+	 * @return lookups that found their key
+	 */
+	public long getHits() {
+		return hits.sum();
+	}
+
+	/**
+	 * @return lookups rejected by the filter without probing the table
+	 */
+	public long getRejected() {
+		return rejected.sum();
+	}
+
+	/**
+	 * @return lookups that passed the filter but missed in the table
+	 */
+	public long getFalsePositives() {
+		return falsePositives.sum();
+	}
+
+	/**
+	 * @return false positives as a share of all misses
+	 */
+	public double getFalsePositiveRate() {
+		long misses = rejected.sum() + falsePositives.sum();
+		return misses == 0 ? 0 : (double) falsePositives.sum() / misses;
+	}
+
+	/**
+	 * Sets all counters back to 0.
+	 */
+	public void resetCounters() {
+		hits.reset();
+		rejected.reset();
+		falsePositives.reset();
+	}
+
+	@Override
+	public String toString() {
+		return "hits " + getHits() + ", rejected by filter " + getRejected() + ", false positives " + getFalsePositives()
+				+ String.format(" (%.4f of misses)", getFalsePositiveRate());
+	}
+
+	private final LookupTable<AnyType> table;
+	private final BloomFilter filter;
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder rejected = new LongAdder();
+	private final LongAdder falsePositives = new LongAdder();
+}
@@ -0,0 +1,196 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+
+/**
+ *
+ * @author Gayatri
+ * A Grid that stores one byte (a Latin-1 letter) per cell outside the Java heap, either
+ * in direct buffers or in a memory mapped file, so its size is not limited by the heap.
+ *
+ * The cells are one flat row-major array: cell (row, col) is at row * cols + col, and a
+ * step in direction d adds the constant stride(d) = rowDelta[d] * cols + colDelta[d].
+ * The array is split into segments of up to 1 GB, since one buffer holds at most 2 GB.
+ *
+ * A grid file starts with a HEADER_BYTES header (MAGIC, rows, cols) followed by the cells.
+ *
+ */
+
+public class ByteGrid implements Grid {
+
+	/**
+	 * Allocates a grid in direct (off-heap) memory.
+	 * @param rows number of rows
+	 * @param cols number of columns
+	 * @return the grid, with every cell 0
+	 */
+	public static ByteGrid allocate(int rows, int cols) {
+		long cells = cellCount(rows, cols);
+		ByteBuffer[] segments = new ByteBuffer[segmentCount(cells)];
+		for (int i = 0; i < segments.length; i++)
+			segments[i] = ByteBuffer.allocateDirect(segmentLength(cells, i));
+		return new ByteGrid(rows, cols, segments);
+	}
+
+	/**
+	 * Creates a grid file, replacing any file of that name, and maps it.
+	 * @param file the grid file
+	 * @param rows number of rows
+	 * @param cols number of columns
+	 * @return the grid, with every cell 0
+	 * @throws IOException if the file cannot be written
+	 */
+	public static ByteGrid create(File file, int rows, int cols) throws IOException {
+		long cells = cellCount(rows, cols);
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+			header.putInt(MAGIC).putInt(rows).putInt(cols).flip();
+			while (header.hasRemaining())
+				channel.write(header);
+			return map(channel, rows, cols, cells);
+		}
+	}
+
+	/**
+	 * Maps an existing grid file for reading and writing.
+	 * @param file the grid file
+	 * @return the grid
+	 * @throws IOException if the file cannot be read or is not a grid file
+	 */
+	public static ByteGrid open(File file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+			while (header.hasRemaining() && channel.read(header) >= 0)
+				;
+			header.flip();
+			if (header.limit() < HEADER_BYTES || header.getInt() != MAGIC)
+				throw new IOException("Not a grid file: " + file);
+			int rows = header.getInt();
+			int cols = header.getInt();
+			long cells = cellCount(rows, cols);
+			if (channel.size() < HEADER_BYTES + cells)
+				throw new IOException("Grid file is truncated: " + file);
+			return map(channel, rows, cols, cells);
+		}
+	}
+
+	public int rows() {
+		return rowCount;
+	}
+
+	public int cols() {
+		return colCount;
+	}
+
+	public char get(int row, int col) {
+		return (char) (byteAt(index(row, col)) & 0xFF);
+	}
+
+	/**
+	 * @throws IllegalArgumentException if letter is not Latin-1
+	 */
+	public void set(int row, int col, char letter) {
+		if (letter > 0xFF)
+			throw new IllegalArgumentException("ByteGrid holds Latin-1 letters only: " + letter);
+		long cell = index(row, col);
+		segments[(int) (cell >>> SEGMENT_BITS)].put((int) (cell & SEGMENT_MASK), (byte) letter);
+	}
+
+	/**
+	 * Reads the letters by adding the direction's stride to a flat cell index.
+	 */
+	@Override
+	public String read(int row, int col, int count, int direction) {
+		byte[] word = new byte[count];
+		long cell = index(row, col);
+		long stride = stride(direction);
+		for (int i = 0; i < count; i++, cell += stride)
+			word[i] = byteAt(cell);
+		return new String(word, StandardCharsets.ISO_8859_1);
+	}
+
+	/**
+	 * Copies the row with bulk reads of the segments it lies in.
+	 */
+	@Override
+	public void readRow(int row, byte[] letters) {
+		long cell = index(row, 0);
+		for (int col = 0; col < colCount; ) {
+			int offset = (int) (cell & SEGMENT_MASK);
+			ByteBuffer segment = segments[(int) (cell >>> SEGMENT_BITS)];
+			int length = Math.min(colCount - col, segment.capacity() - offset);
+			segment.get(offset, letters, col, length);
+			col += length;
+			cell += length;
+		}
+	}
+
+	/**
+	 * @param direction one of the 8 WordPuzzle directions
+	 * @return the change of the flat cell index for one step in that direction
+	 */
+	public long stride(int direction) {
+		return (long) WordPuzzle.rowDelta[direction] * colCount + WordPuzzle.colDelta[direction];
+	}
+
+	/**
+	 * Writes changes of a file backed grid to the file. Does nothing for a direct grid.
+	 */
+	public void flush() {
+		for (ByteBuffer segment : segments)
+			if (segment instanceof MappedByteBuffer)
+				((MappedByteBuffer) segment).force();
+	}
+
+	private ByteGrid(int rows, int cols, ByteBuffer[] segments) {
+		rowCount = rows;
+		colCount = cols;
+		this.segments = segments;
+	}
+
+	private static ByteGrid map(FileChannel channel, int rows, int cols, long cells) throws IOException {
+		ByteBuffer[] segments = new ByteBuffer[segmentCount(cells)];
+		for (int i = 0; i < segments.length; i++)
+			segments[i] = channel.map(FileChannel.MapMode.READ_WRITE, HEADER_BYTES + ((long) i << SEGMENT_BITS), segmentLength(cells, i));
+		return new ByteGrid(rows, cols, segments);
+	}
+
+	private static long cellCount(int rows, int cols) {
+		if (rows < 1 || cols < 1)
+			throw new IllegalArgumentException("A grid needs at least one row and column: " + rows + " x " + cols);
+		return (long) rows * cols;
+	}
+
+	private static int segmentCount(long cells) {
+		return (int) ((cells + SEGMENT_MASK) >>> SEGMENT_BITS);
+	}
+
+	private static int segmentLength(long cells, int segment) {
+		return (int) Math.min(1L << SEGMENT_BITS, cells - ((long) segment << SEGMENT_BITS));
+	}
+
+	private long index(int row, int col) {
+		if (row < 0 || row >= rowCount || col < 0 || col >= colCount)
+			throw new IndexOutOfBoundsException("No cell (" + row + ", " + col + ") in a " + rowCount + " x " + colCount + " grid");
+		return (long) row * colCount + col;
+	}
+
+	private byte byteAt(long cell) {
+		return segments[(int) (cell >>> SEGMENT_BITS)].get((int) (cell & SEGMENT_MASK));
+	}
+
+	private static final int MAGIC = 0x57504752;		// "WPGR"
+	private static final int HEADER_BYTES = 16;
+	private static final int SEGMENT_BITS = 30;		// 1 GB segments
+	private static final long SEGMENT_MASK = (1L << SEGMENT_BITS) - 1;
+
+	private final int rowCount;
+	private final int colCount;
+	private final ByteBuffer[] segments;
+}
@@ -0,0 +1,46 @@
+/**
+ *
+ * @author Gayatri
+ * A Grid over a char[][] on the heap. The array is used as is, not copied, so changes
+ * made through either are seen by both.
+ *
+ */
+
+public class CharGrid implements Grid {
+
+	/**
+	 * @param grid 2D character array with rows of equal length
+	 */
+	public CharGrid(char[][] grid) {
+		this.grid = grid;
+		rowCount = grid.length;
+		colCount = rowCount == 0 ? 0 : grid[0].length;
+	}
+
+	public int rows() {
+		return rowCount;
+	}
+
+	public int cols() {
+		return colCount;
+	}
+
+	public char get(int row, int col) {
+		return grid[row][col];
+	}
+
+	public void set(int row, int col, char letter) {
+		grid[row][col] = letter;
+	}
+
+	/**
+	 * @return the array behind this grid
+	 */
+	public char[][] array() {
+		return grid;
+	}
+
+	private final char[][] grid;
+	private final int rowCount;
+	private final int colCount;
+}
@@ -0,0 +1,344 @@
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ *
+ * @author Gayatri
+ * Linear probing hash table that can be shared by many threads, with the same
+ * contains/get/put API as MyHashTable.
+ *
+ * Reads never lock and never write. Writers claim a slot with compare-and-set on an
+ * immutable Entry; removal leaves a tombstone Entry so that no probe chain is broken.
+ *
+ * Resizing is cooperative. Once a table passes its threshold a double-sized next table
+ * is linked to it and every later write first migrates one stride of slots. Migrating
+ * a slot freezes it (wraps it in a Frozen marker) and then copies its entry into the
+ * next table if nobody has written that key there yet. A key therefore lives in exactly
+ * one place: a live slot of the old table, or the next table once its slot is frozen.
+ * Frozen empty slots end a probe chain just like null does, so new keys go straight
+ * to the next table while a resize is running.
+ *
+ */
+
+public class ConcurrentHashTable<AnyType> implements LookupTable<AnyType> {
+
+	/**
+	 * Construct the hash table.
+	 */
+	public ConcurrentHashTable() {
+		this(DEFAULT_TABLE_SIZE);
+	}
+
+	/**
+	 * Construct the hash table.
+	 * @param size the approximate initial size.
+	 */
+	public ConcurrentHashTable(int size) {
+		int length = MIN_TABLE_SIZE;
+		while (length < size && length < (1 << 30))
+			length <<= 1;
+		root = new AtomicReference<>(new Table(length));
+	}
+
+	/**
+	 * Insert into the hash table.
+	 * @param x the item to insert.
+	 */
+	public boolean insert(AnyType x) {
+		return put(x, null);
+	}
+
+	/**
+	 * Insert into the hash table, replacing the value of a key that is already present.
+	 * @param key Key of the Hash Table
+	 * @param value Value corresponding to the key in HashTable
+	 */
+	public boolean put(AnyType key, AnyType value) {
+		int hash = spread(key.hashCode());
+		write(root.get(), key, hash, new Entry<>(key, value, hash, false), false, false);
+		return true;
+	}
+
+	/**
+	 * Remove from the hash table.
+	 * @param x the item to remove.
+	 * @return true if item removed
+	 */
+	public boolean remove(AnyType x) {
+		int hash = spread(x.hashCode());
+		Entry<AnyType> prev = write(root.get(), x, hash, new Entry<>(x, null, hash, true), false, false);
+		return prev != null && !prev.deleted;
+	}
+
+	/**
+	 * Return the value to which the key corresponds to in the Hashtable
+	 * @param key The key whose value is to be found
+	 * @return value corresponding to the key
+	 */
+	public AnyType get(AnyType key) {
+		Entry<AnyType> e = find(root.get(), key, spread(key.hashCode()));
+		return (e == null || e.deleted) ? null : e.value;
+	}
+
+	/**
+	 * Find an item in the hash table.
+	 * @param x the item to search for.
+	 * @return true if x is present.
+	 */
+	public boolean contains(AnyType x) {
+		Entry<AnyType> e = find(root.get(), x, spread(x.hashCode()));
+		return e != null && !e.deleted;
+	}
+
+	/**
+	 * Get current size. Exact when no write is in progress.
+	 * @return the size.
+	 */
+	public int size() {
+		return (int) size.sum();
+	}
+
+	/**
+	 * Get length of the internal table currently used for new lookups.
+	 * @return the length.
+	 */
+	public int capacity() {
+		return root.get().slots.length();
+	}
+
+	/**
+	 * Finds the authoritative entry of a key, following frozen slots into newer tables.
+	 * @return the entry, possibly a tombstone, or null if the key was never there.
+	 */
+	@SuppressWarnings("unchecked")
+	private Entry<AnyType> find(Table t, Object key, int hash) {
+		outer:
+		for (;;) {
+			int mask = t.slots.length() - 1;
+			int i = hash & mask;
+			for (int probes = 0; probes <= mask; probes++, i = (i + 1) & mask) {
+				Object o = t.slots.get(i);
+				if (o == null)
+					return null;
+				if (o instanceof Frozen) {
+					Entry<AnyType> fe = ((Frozen<AnyType>) o).entry;
+					if (fe == null) {
+						t = t.next.get();
+						continue outer;
+					}
+					if (fe.matches(key, hash)) {
+						Entry<AnyType> newer = find(t.next.get(), key, hash);
+						return newer != null ? newer : fe;
+					}
+					continue;
+				}
+				Entry<AnyType> e = (Entry<AnyType>) o;
+				if (e.matches(key, hash))
+					return e;
+			}
+			t = t.next.get();	// every slot probed
+			if (t == null)
+				return null;
+		}
+	}
+
+	/**
+	 * Writes an entry (or a tombstone) for a key.
+	 * @param ifAbsent only write if the key has no entry yet; used to copy during a resize
+	 * @param recordDelete write a tombstone even if the key is absent from t, because an
+	 *        older frozen copy of it still exists
+	 * @return the previous authoritative entry of the key, or null
+	 */
+	@SuppressWarnings("unchecked")
+	private Entry<AnyType> write(Table t, Object key, int hash, Entry<AnyType> ne, boolean ifAbsent, boolean recordDelete) {
+		if (t.next.get() != null && !ifAbsent)
+			helpTransfer(t);
+
+		outer:
+		for (;;) {
+			int mask = t.slots.length() - 1;
+			int i = hash & mask;
+			for (int probes = 0; probes <= mask; ) {
+				Object o = t.slots.get(i);
+				if (o == null) {
+					if (t.next.get() != null) {
+						// A resize is running: close this chain and continue in the next table
+						if (t.slots.compareAndSet(i, null, new Frozen<AnyType>(null))) {
+							t = t.next.get();
+							continue outer;
+						}
+						continue;
+					}
+					if (ne.deleted && !recordDelete)
+						return null;
+					if (t.slots.compareAndSet(i, null, ne)) {
+						if (!ne.deleted && !ifAbsent)
+							size.increment();
+						if (t.used.incrementAndGet() > t.threshold)
+							startResize(t);
+						return null;
+					}
+					continue;	// lost the race for this slot, look at it again
+				}
+				if (o instanceof Frozen) {
+					Entry<AnyType> fe = ((Frozen<AnyType>) o).entry;
+					if (fe == null) {
+						t = t.next.get();
+						continue outer;
+					}
+					if (fe.matches(key, hash)) {
+						if (ifAbsent)
+							return fe;
+						Entry<AnyType> prev = write(t.next.get(), key, hash, ne, false, !fe.deleted);
+						if (prev != null)
+							return prev;
+						// the write above counted ne against an absent key, but fe was there
+						if (!fe.deleted)
+							size.decrement();
+						return fe;
+					}
+				}
+				else {
+					Entry<AnyType> e = (Entry<AnyType>) o;
+					if (e.matches(key, hash)) {
+						if (ifAbsent)
+							return e;
+						if (!t.slots.compareAndSet(i, e, ne))
+							continue;
+						if (e.deleted && !ne.deleted)
+							size.increment();
+						else if (!e.deleted && ne.deleted)
+							size.decrement();
+						return e;
+					}
+				}
+				probes++;
+				i = (i + 1) & mask;
+			}
+
+			// every slot probed: make sure a bigger table exists and go there
+			startResize(t);
+			while (t.next.get() == null)
+				Thread.onSpinWait();
+			t = t.next.get();
+		}
+	}
+
+	/**
+	 * Links a next table to t unless one is already there or being allocated.
+	 * Tables mostly full of tombstones are rebuilt at the same length.
+	 */
+	private void startResize(Table t) {
+		if (t.next.get() != null || !t.resizeClaimed.compareAndSet(false, true))
+			return;
+		int length = t.slots.length();
+		long live = size.sum();
+		int newLength = (live * 4 > length && length < (1 << 30)) ? length * 2 : length;
+		t.next.set(new Table(newLength));
+		helpTransfer(t);
+	}
+
+	/**
+	 * Migrates one stride of slots of t into its next table. The thread that finishes
+	 * the last stride makes the next table the root.
+	 */
+	@SuppressWarnings("unchecked")
+	private void helpTransfer(Table t) {
+		Table nt = t.next.get();
+		int length = t.slots.length();
+		int start = t.transferIndex.getAndAdd(TRANSFER_STRIDE);
+		if (start >= length)
+			return;
+
+		int end = Math.min(start + TRANSFER_STRIDE, length);
+		for (int i = start; i < end; i++) {
+			for (;;) {
+				Object o = t.slots.get(i);
+				if (o instanceof Frozen)
+					break;
+				Entry<AnyType> e = (Entry<AnyType>) o;
+				if (t.slots.compareAndSet(i, o, new Frozen<>(e))) {
+					if (e != null && !e.deleted)
+						write(nt, e.key, e.hash, e, true, false);
+					break;
+				}
+			}
+		}
+		if (t.transferred.addAndGet(end - start) == length)
+			advanceRoot();
+	}
+
+	/**
+	 * Moves the root past every table that has been fully migrated.
+	 */
+	private void advanceRoot() {
+		Table r = root.get();
+		while (r.next.get() != null && r.transferred.get() == r.slots.length()) {
+			root.compareAndSet(r, r.next.get());
+			r = root.get();
+		}
+	}
+
+	private static int spread(int h) {
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * An immutable key/value pair. A deleted entry is a tombstone that keeps its key.
+	 */
+	private static final class Entry<AnyType> {
+		Entry(AnyType key, AnyType value, int hash, boolean deleted) {
+			this.key = key;
+			this.value = value;
+			this.hash = hash;
+			this.deleted = deleted;
+		}
+
+		boolean matches(Object k, int h) {
+			return hash == h && key.equals(k);
+		}
+
+		final AnyType key;
+		final AnyType value;
+		final int hash;
+		final boolean deleted;
+	}
+
+	/**
+	 * Marks a slot whose contents belong to the next table. entry is what the
+	 * slot held when it was frozen, or null if it was empty.
+	 */
+	private static final class Frozen<AnyType> {
+		Frozen(Entry<AnyType> entry) {
+			this.entry = entry;
+		}
+
+		final Entry<AnyType> entry;
+	}
+
+	private static final class Table {
+		Table(int length) {
+			slots = new AtomicReferenceArray<>(length);
+			threshold = length / 2;
+		}
+
+		final AtomicReferenceArray<Object> slots;
+		final int threshold;								// used slots that start a resize
+		final AtomicInteger used = new AtomicInteger();		// slots holding an entry or tombstone
+		final AtomicReference<Table> next = new AtomicReference<>();
+		final AtomicBoolean resizeClaimed = new AtomicBoolean();
+		final AtomicInteger transferIndex = new AtomicInteger();	// first slot not yet claimed
+		final AtomicInteger transferred = new AtomicInteger();		// slots already migrated
+	}
+
+	private static final int DEFAULT_TABLE_SIZE = 128;
+	private static final int MIN_TABLE_SIZE = 16;
+	private static final int TRANSFER_STRIDE = 64;		// slots migrated per write
+
+	private final AtomicReference<Table> root;
+	private final LongAdder size = new LongAdder();
+}
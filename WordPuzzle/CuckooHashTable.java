@@ -0,0 +1,403 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+
+/**
+ *
+ * @author Gayatri
+ * Read-only hash table for a dictionary that does not change once it is loaded, with
+ * bucketized cuckoo hashing: every key hashes to two buckets of SLOTS slots and sits in
+ * one of them, so a lookup reads at most two buckets however full the table is.
+ *
+ * The table is built once from all its keys (see Builder). A key whose two buckets are
+ * full takes the slot of a key in one of them, which moves on to its other bucket, and
+ * so on; if such a walk gets longer than MAX_KICKS the build starts over with another
+ * hash seed. With 4 slots per bucket this succeeds at a load factor of MAX_LOAD.
+ *
+ * A bucket is 64 bytes, one cache line, of a direct buffer aligned to 64 bytes. A slot
+ * is 16 bytes: the key's length and value, and the key itself if it has at most
+ * INLINE_CHARS Latin-1 characters, so such a key is compared inside its bucket and a
+ * lookup touches nothing but its two cache lines. A longer key keeps a 32 bit hash in
+ * its slot and its characters in a separate arena, which is only read when the hash
+ * matches. All but 2% of the words of Dictionary.txt are short enough.
+ *
+ */
+
+public class CuckooHashTable implements LookupTable<String> {
+
+	public boolean contains(String x) {
+		return find(x, null, 0, x.length()) >= 0;
+	}
+
+	/**
+	 * @return the value of the key, or null if the key is absent
+	 */
+	public String get(String key) {
+		return valueAt(find(key, null, 0, key.length()));
+	}
+
+	/**
+	 * Hashes and compares the characters straight from the array; no String is made.
+	 */
+	@Override
+	public boolean contains(char[] chars, int offset, int length) {
+		return find(null, chars, offset, length) >= 0;
+	}
+
+	/**
+	 * Hashes and compares the characters straight from the array; no String is made.
+	 */
+	@Override
+	public String get(char[] chars, int offset, int length) {
+		return valueAt(find(null, chars, offset, length));
+	}
+
+	/**
+	 * @return number of keys
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return number of slots, SLOTS per bucket
+	 */
+	public int capacity() {
+		return bucketCount * SLOTS;
+	}
+
+	/**
+	 * @return number of keys kept in the arena instead of their slot
+	 */
+	public int arenaKeys() {
+		return arenaKeys;
+	}
+
+	/**
+	 * @return bytes taken by the buckets and the arena
+	 */
+	public long memoryBytes() {
+		return (long) bucketCount * BUCKET_BYTES + 2L * arena.length;
+	}
+
+	@Override
+	public String toString() {
+		return "size " + size + ", " + bucketCount + " buckets of " + SLOTS + ", load " + String.format("%.2f", size / (double) capacity())
+				+ ", " + arenaKeys + " keys in the arena, " + (memoryBytes() >> 10) + " KB";
+	}
+
+	/**
+	 * Collects keys and values, then builds the table for all of them at once.
+	 */
+	public static class Builder {
+
+		/**
+		 * Add a key. A later value of the same key replaces an earlier one.
+		 * @param key the key, not empty
+		 * @param value its value, e.g. WordPuzzle.WORD; at most 255 different values
+		 * @return this builder
+		 */
+		public Builder put(String key, String value) {
+			if (key.isEmpty())
+				throw new IllegalArgumentException("A key cannot be empty");
+			entries.put(key, value);
+			return this;
+		}
+
+		/**
+		 * Add keys that all have the same value.
+		 * @param keys the keys
+		 * @param value their value
+		 * @return this builder
+		 */
+		public Builder putAll(Collection<String> keys, String value) {
+			for (String key : keys)
+				put(key, value);
+			return this;
+		}
+
+		/**
+		 * @param key a key
+		 * @return true if the key has been added
+		 */
+		public boolean contains(String key) {
+			return entries.containsKey(key);
+		}
+
+		/**
+		 * Build the table. The builder can be used again afterwards.
+		 * @return a table holding every key added
+		 * @throws IllegalArgumentException if the keys have more than 255 different values
+		 */
+		public CuckooHashTable build() {
+			int n = entries.size();
+			String[] keys = new String[n];
+			byte[] valueIds = new byte[n];
+			ArrayList<String> values = new ArrayList<String>();
+			HashMap<String, Integer> ids = new HashMap<String, Integer>();
+			values.add(null);	// value id 0
+
+			int i = 0;
+			for (Map.Entry<String, String> e : entries.entrySet()) {
+				keys[i] = e.getKey();
+				String value = e.getValue();
+				if (value != null && !ids.containsKey(value)) {
+					if (values.size() > 0xFF)
+						throw new IllegalArgumentException("A CuckooHashTable holds at most 255 different values");
+					ids.put(value, values.size());
+					values.add(value);
+				}
+				valueIds[i++] = (byte) (value == null ? 0 : ids.get(value));
+			}
+
+			int bucketCount = Math.max(1, (int) Math.ceil(n / (SLOTS * MAX_LOAD)));
+			if (n > MAX_BUCKETS * (long) SLOTS * MAX_LOAD)
+				throw new IllegalArgumentException("Too many keys for one CuckooHashTable: " + n);
+			long seed = 0x5EED;
+			for (int attempt = 1; ; attempt++, seed++) {
+				int[] slots = place(keys, bucketCount, seed);
+				if (slots != null)
+					return new CuckooHashTable(keys, valueIds, values.toArray(new String[values.size()]), slots, bucketCount, seed);
+				// A few failures at one size mean the load is too high for these keys
+				if (attempt % 4 == 0)
+					bucketCount = Math.min(MAX_BUCKETS, bucketCount + bucketCount / 16 + 1);
+			}
+		}
+
+		/**
+		 * Places every key with cuckoo walks.
+		 * @return for every slot the index of its key or -1, or null if a walk got too long
+		 */
+		private static int[] place(String[] keys, int bucketCount, long seed) {
+			long[] hashes = new long[keys.length];
+			for (int i = 0; i < keys.length; i++)
+				hashes[i] = hash(keys[i], null, 0, keys[i].length(), seed);
+			int[] slots = new int[bucketCount * SLOTS];
+			Arrays.fill(slots, -1);
+			Random random = new Random(seed);
+
+			for (int i = 0; i < keys.length; i++) {
+				int key = i;
+				int from = -1;		// the bucket key was just moved out of
+				for (int kicks = 0; ; kicks++) {
+					int b1 = bucket1(hashes[key], bucketCount);
+					int b2 = bucket2(hashes[key], bucketCount);
+					if (placeIn(slots, b1, key) || placeIn(slots, b2, key))
+						break;
+					if (kicks == MAX_KICKS)
+						return null;
+					int b = from == b1 ? b2 : from == b2 ? b1 : random.nextBoolean() ? b1 : b2;
+					int s = b * SLOTS + random.nextInt(SLOTS);
+					int victim = slots[s];
+					slots[s] = key;
+					key = victim;
+					from = b;
+				}
+			}
+			return slots;
+		}
+
+		private static boolean placeIn(int[] slots, int bucket, int key) {
+			for (int s = bucket * SLOTS; s < (bucket + 1) * SLOTS; s++) {
+				if (slots[s] < 0) {
+					slots[s] = key;
+					return true;
+				}
+			}
+			return false;
+		}
+
+		private final HashMap<String, String> entries = new HashMap<String, String>();
+	}
+
+	/**
+	 * Writes the placed keys into the buckets, and the keys that do not fit a slot into the arena.
+	 */
+	private CuckooHashTable(String[] keys, byte[] valueIds, String[] values, int[] slots, int bucketCount, long seed) {
+		this.values = values;
+		this.bucketCount = bucketCount;
+		this.seed = seed;
+		size = keys.length;
+		buckets = ByteBuffer.allocateDirect(bucketCount * BUCKET_BYTES + BUCKET_BYTES - 1).alignedSlice(BUCKET_BYTES).order(ByteOrder.nativeOrder());
+
+		StringBuilder longKeys = new StringBuilder();
+		int longKeyCount = 0;
+		int longest = 0;
+		for (int s = 0; s < slots.length; s++) {
+			if (slots[s] < 0)
+				continue;
+			String key = keys[slots[s]];
+			longest = Math.max(longest, key.length());
+			long value = (valueIds[slots[s]] & 0xFFL) << 8;
+			long first = packFirst(key, null, 0, key.length());
+			long second = packSecond(key, null, 0, key.length());
+			if (first == 0) {
+				// not inline: the key's hash, and where it is in the arena
+				first = ARENA_KEY | tag(hash(key, null, 0, key.length(), seed));
+				second = longKeys.length() | (long) key.length() << 32;
+				longKeys.append(key);
+				longKeyCount++;
+			}
+			buckets.putLong(s * SLOT_BYTES, first | value);
+			buckets.putLong(s * SLOT_BYTES + 8, second);
+		}
+		arena = longKeys.toString().toCharArray();
+		arenaKeys = longKeyCount;
+		maxKeyLength = longest;
+	}
+
+	/**
+	 * Finds a key, read from chars if chars is not null, else from key.
+	 * @return the byte offset of its slot in buckets, or -1
+	 */
+	private int find(String key, char[] chars, int offset, int length) {
+		if (length == 0 || length > maxKeyLength)
+			return -1;		// e.g. most of the candidates of findWords, without hashing them
+		// One pass over the characters hashes the key and packs it as an inline slot would hold it
+		long h = seed;
+		long first = length;
+		long second = 0;
+		boolean inline = length <= INLINE_CHARS;
+		for (int i = 0; i < length; i++) {
+			char c = chars != null ? chars[offset + i] : key.charAt(i);
+			h = (h ^ c) * HASH_MULTIPLIER;
+			if (c > 0xFF)
+				inline = false;
+			else if (i < 6)
+				first |= (long) c << (16 + 8 * i);
+			else if (i < INLINE_CHARS)
+				second |= (long) c << (8 * (i - 6));
+		}
+		h = finish(h);
+		if (!inline)
+			first = ARENA_KEY | tag(h);
+
+		int b1 = bucket1(h, bucketCount);
+		int b2 = bucket2(h, bucketCount);
+		int pos = findIn(b1, inline, first, second, key, chars, offset, length);
+		if (pos < 0 && b2 != b1)
+			pos = findIn(b2, inline, first, second, key, chars, offset, length);
+		return pos;
+	}
+
+	/**
+	 * Compares the slots of one bucket with the packed key: both longs of an inline key, else its hash and then the arena.
+	 */
+	private int findIn(int bucket, boolean inline, long first, long second, String key, char[] chars, int offset, int length) {
+		int pos = bucket * BUCKET_BYTES;
+		for (int s = 0; s < SLOTS; s++, pos += SLOT_BYTES) {
+			long slot = buckets.getLong(pos);
+			if (slot == 0)
+				return -1;		// slots fill up in order, so the rest are empty too
+			if ((slot & ~VALUE_MASK) != first)
+				continue;
+			long rest = buckets.getLong(pos + 8);
+			if (inline ? rest == second : (int) (rest >>> 32) == length && arenaEquals((int) rest, key, chars, offset, length))
+				return pos;
+		}
+		return -1;
+	}
+
+	private boolean arenaEquals(int start, String key, char[] chars, int offset, int length) {
+		for (int i = 0; i < length; i++)
+			if (arena[start + i] != (chars != null ? chars[offset + i] : key.charAt(i)))
+				return false;
+		return true;
+	}
+
+	private String valueAt(int pos) {
+		return pos < 0 ? null : values[(int) (buckets.getLong(pos) >>> 8) & 0xFF];
+	}
+
+	/**
+	 * The first long of the slot of an inline key, without its value: the length in the
+	 * low byte, then the first 6 characters a byte each. 0 if the key is not inline.
+	 */
+	private static long packFirst(String key, char[] chars, int offset, int length) {
+		if (length > INLINE_CHARS)
+			return 0;
+		long packed = length;
+		for (int i = 0; i < length; i++) {
+			char c = chars != null ? chars[offset + i] : key.charAt(i);
+			if (c > 0xFF)
+				return 0;
+			if (i < 6)
+				packed |= (long) c << (16 + 8 * i);
+		}
+		return packed;
+	}
+
+	/**
+	 * The second long of the slot of an inline key: characters 6 to 13 a byte each.
+	 */
+	private static long packSecond(String key, char[] chars, int offset, int length) {
+		long packed = 0;
+		for (int i = 6; i < length; i++)
+			packed |= (long) (chars != null ? chars[offset + i] : key.charAt(i)) << (8 * (i - 6));
+		return packed;
+	}
+
+	/**
+	 * 64 bit hash of the key; its two halves pick the two buckets.
+	 */
+	private static long hash(String key, char[] chars, int offset, int length, long seed) {
+		long h = seed;
+		for (int i = 0; i < length; i++)
+			h = (h ^ (chars != null ? chars[offset + i] : key.charAt(i))) * HASH_MULTIPLIER;
+		return finish(h);
+	}
+
+	private static long finish(long h) {
+		h ^= h >>> 32;
+		h *= 0xD6E8FEB86659FD93L;
+		return h ^ (h >>> 32);
+	}
+
+	/**
+	 * The hash kept in the slot of an arena key, in the high half of its first long. It is taken
+	 * from the low bits of both halves of the hash, which do not pick the buckets.
+	 */
+	private static long tag(long h) {
+		return ((h & 0xFFFF) | (h >>> 16 & 0xFFFF0000L)) << 32;
+	}
+
+	/**
+	 * Maps the low half of the hash onto [0, bucketCount) with a multiply instead of a division.
+	 */
+	private static int bucket1(long h, int bucketCount) {
+		return (int) (((h & 0xFFFFFFFFL) * bucketCount) >>> 32);
+	}
+
+	private static int bucket2(long h, int bucketCount) {
+		return (int) (((h >>> 32) * bucketCount) >>> 32);
+	}
+
+	/** Slots per bucket. */
+	public static final int SLOTS = 4;
+	/** Longest key kept in its slot. */
+	public static final int INLINE_CHARS = 14;
+	/** Load factor the table is built for. */
+	public static final double MAX_LOAD = 0.9;
+	private static final int MAX_KICKS = 500;
+	private static final long HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+	private static final int SLOT_BYTES = 16;
+	private static final int BUCKET_BYTES = SLOTS * SLOT_BYTES;
+	private static final long ARENA_KEY = 0xFF;		// length byte of a key kept in the arena
+	private static final long VALUE_MASK = 0xFF00;
+	private static final int MAX_BUCKETS = (Integer.MAX_VALUE - BUCKET_BYTES) / BUCKET_BYTES;	// one direct buffer
+
+	private final ByteBuffer buckets;	// bucketCount x BUCKET_BYTES, 64 byte aligned
+	private final char[] arena;			// characters of the keys that are not inline
+	private final String[] values;		// values by id; id 0 is null
+	private final int bucketCount;
+	private final long seed;
+	private final int size;
+	private final int arenaKeys;
+	private final int maxKeyLength;
+}
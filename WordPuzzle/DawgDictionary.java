@@ -0,0 +1,492 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+
+
+/**
+ *
+ * @author Gayatri
+ * Dictionary stored as a minimized DAWG (directed acyclic word graph), i.e. a trie
+ * whose identical suffixes are shared.
+ *
+ * The graph is built with Daciuk's incremental algorithm from words in sorted order
+ * and then frozen into three flat arrays: the edges of state s are
+ * labels/targets[ first[ s ] .. first[ s + 1 ] ), sorted by label.
+ *
+ * States are plain ints, so a solver can walk the graph one character at a time with
+ * step(), isWord() and hasContinuation() without hashing or allocating anything.
+ * As a LookupTable it answers get() with WordPuzzle.WORD or WordPuzzle.PREFIX, the same
+ * values as the prefix dictionary hash table.
+ *
+ * Every word also has an id, its index in sorted order, found by the same walk: each
+ * edge stores the number of words that sort before any word through it, counted from
+ * its state, and indexOf() adds them up along the word.
+ *
+ */
+
+public class DawgDictionary implements LookupTable<String> {
+
+	/**
+	 * Loads a DAWG from a text file of whitespace separated words.
+	 * The words do not have to be sorted, but sorted input is not copied twice.
+	 * @param file the dictionary file
+	 * @return the dictionary
+	 * @throws IOException if the file cannot be read
+	 */
+	public static DawgDictionary load(File file) throws IOException {
+		Builder builder = new Builder();
+		for (String word : readSortedWords(file))
+			builder.add(word);
+		return builder.build();
+	}
+
+	/**
+	 * Reads a text file of whitespace separated words into ascending String order.
+	 * Sorted input is not sorted again.
+	 * @param file the dictionary file
+	 * @return the words, possibly with duplicates
+	 * @throws IOException if the file cannot be read
+	 */
+	static ArrayList<String> readSortedWords(File file) throws IOException {
+		ArrayList<String> words = new ArrayList<String>();
+		boolean sorted = true;
+
+		try (BufferedReader in = new BufferedReader(new FileReader(file))) {
+			String line;
+			while ((line = in.readLine()) != null) {
+				for (String word : line.trim().split("\\s+")) {
+					if (word.isEmpty())
+						continue;
+					if (!words.isEmpty() && words.get(words.size() - 1).compareTo(word) > 0)
+						sorted = false;
+					words.add(word);
+				}
+			}
+		}
+		if (!sorted)
+			Collections.sort(words);
+		return words;
+	}
+
+	/**
+	 * @return the start state
+	 */
+	public int root() {
+		return 0;
+	}
+
+	/**
+	 * Follows the edge labelled c out of a state.
+	 * @param state a state returned by root() or step()
+	 * @param c the next character
+	 * @return the next state, or -1 if no word continues with c
+	 */
+	public int step(int state, char c) {
+		int e = edge(state, c);
+		return e < 0 ? -1 : targets[e];
+	}
+
+	/**
+	 * Finds the edge labelled c out of a state. With target() and rank() a solver can follow
+	 * a word and add up its id (see indexOf) in a single search per character.
+	 * @param state a state returned by root() or step()
+	 * @param c the next character
+	 * @return the edge, or -1 if no word continues with c
+	 */
+	public int edge(int state, char c) {
+		int low = first[state];
+		int high = first[state + 1] - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			if (labels[mid] < c)
+				low = mid + 1;
+			else if (labels[mid] > c)
+				high = mid - 1;
+			else
+				return mid;
+		}
+		return -1;
+	}
+
+	/**
+	 * @param edge an edge returned by edge()
+	 * @return the state it leads to
+	 */
+	public int target(int edge) {
+		return targets[edge];
+	}
+
+	/**
+	 * @param edge an edge returned by edge()
+	 * @return what following the edge adds to the id of every word through it
+	 */
+	public int rank(int edge) {
+		return ranks[edge];
+	}
+
+	/**
+	 * @param state a state returned by root() or step()
+	 * @return true if the characters that led to state form a word
+	 */
+	public boolean isWord(int state) {
+		return (finals[state >>> 6] & (1L << state)) != 0;
+	}
+
+	/**
+	 * @param state a state returned by root() or step()
+	 * @return true if some longer word starts with the characters that led to state
+	 */
+	public boolean hasContinuation(int state) {
+		return first[state + 1] > first[state];
+	}
+
+	/**
+	 * @param s the characters to follow from the root
+	 * @return the state reached, or -1
+	 */
+	public int walk(CharSequence s) {
+		int state = root();
+		for (int i = 0; i < s.length() && state >= 0; i++)
+			state = step(state, s.charAt(i));
+		return state;
+	}
+
+	public boolean contains(String x) {
+		if (x.isEmpty())
+			return false;
+		int state = walk(x);
+		return state >= 0 && isWord(state);
+	}
+
+	/**
+	 * @return WordPuzzle.WORD for a word, WordPuzzle.PREFIX for a proper prefix of a word, else null
+	 */
+	public String get(String key) {
+		if (key.isEmpty())
+			return null;
+		int state = walk(key);
+		if (state < 0)
+			return null;
+		return isWord(state) ? WordPuzzle.WORD : WordPuzzle.PREFIX;
+	}
+
+	/**
+	 * Walks the characters straight from the array; no String is made.
+	 */
+	@Override
+	public boolean contains(char[] chars, int offset, int length) {
+		int state = walk(chars, offset, length);
+		return length > 0 && state >= 0 && isWord(state);
+	}
+
+	/**
+	 * Walks the characters straight from the array; no String is made.
+	 */
+	@Override
+	public String get(char[] chars, int offset, int length) {
+		int state = walk(chars, offset, length);
+		if (length == 0 || state < 0)
+			return null;
+		return isWord(state) ? WordPuzzle.WORD : WordPuzzle.PREFIX;
+	}
+
+	private int walk(char[] chars, int offset, int length) {
+		int state = root();
+		for (int i = offset; i < offset + length && state >= 0; i++)
+			state = step(state, chars[i]);
+		return state;
+	}
+
+	/**
+	 * @param word a word
+	 * @return id of the word: its index, from 0 to size() - 1, in ascending String order; -1 if it is not a word
+	 */
+	public int indexOf(CharSequence word) {
+		int state = root();
+		int index = 0;
+		for (int i = 0; i < word.length(); i++) {
+			int e = edge(state, word.charAt(i));
+			if (e < 0)
+				return -1;
+			index += ranks[e];
+			state = targets[e];
+		}
+		return word.length() > 0 && isWord(state) ? index : -1;
+	}
+
+	/**
+	 * Finds the id of the word spelled by chars[offset .. offset + length), see indexOf(CharSequence).
+	 * @param chars the characters
+	 * @param offset index of the first character of the word
+	 * @param length length of the word
+	 * @return id of the word, or -1 if it is not a word
+	 */
+	public int indexOf(char[] chars, int offset, int length) {
+		int state = root();
+		int index = 0;
+		for (int i = offset; i < offset + length; i++) {
+			int e = edge(state, chars[i]);
+			if (e < 0)
+				return -1;
+			index += ranks[e];
+			state = targets[e];
+		}
+		return length > 0 && isWord(state) ? index : -1;
+	}
+
+	/**
+	 * @param id a word id, from 0 to size() - 1
+	 * @return the word with that id, i.e. the inverse of indexOf
+	 * @throws IndexOutOfBoundsException if there is no such id
+	 */
+	public String wordAt(int id) {
+		if (id < 0 || id >= wordCount)
+			throw new IndexOutOfBoundsException("No word id " + id + " in a dictionary of " + wordCount + " words");
+		StringBuilder word = new StringBuilder();
+		int state = root();
+		while (id > 0 || !isWord(state)) {
+			// The last edge whose words start at or before id
+			int e = first[state + 1] - 1;
+			while (ranks[e] > id)
+				e--;
+			id -= ranks[e];
+			word.append(labels[e]);
+			state = targets[e];
+		}
+		return word.toString();
+	}
+
+	/**
+	 * @return number of words in the dictionary
+	 */
+	public int size() {
+		return wordCount;
+	}
+
+	/**
+	 * @return length of the longest word
+	 */
+	public int maxWordLength() {
+		return maxWordLength;
+	}
+
+	/**
+	 * @return number of states of the graph
+	 */
+	public int stateCount() {
+		return first.length - 1;
+	}
+
+	/**
+	 * @return number of edges of the graph
+	 */
+	public int edgeCount() {
+		return labels.length;
+	}
+
+	private DawgDictionary(int[] first, char[] labels, int[] targets, long[] finals, int wordCount) {
+		this.first = first;
+		this.labels = labels;
+		this.targets = targets;
+		this.finals = finals;
+		this.wordCount = wordCount;
+
+		int[] words = new int[first.length - 1];
+		int[] depths = new int[first.length - 1];
+		Arrays.fill(words, -1);
+		Arrays.fill(depths, -1);
+		ranks = new int[labels.length];
+		for (int s = 0; s < words.length; s++) {
+			int rank = isWord(s) ? 1 : 0;
+			for (int e = first[s]; e < first[s + 1]; e++) {
+				ranks[e] = rank;
+				rank += countWords(targets[e], words);
+			}
+		}
+		maxWordLength = depth(root(), depths);
+	}
+
+	/**
+	 * @return length of the longest path out of state, memoized in depths
+	 */
+	private int depth(int state, int[] depths) {
+		if (depths[state] < 0) {
+			int longest = 0;
+			for (int e = first[state]; e < first[state + 1]; e++)
+				longest = Math.max(longest, 1 + depth(targets[e], depths));
+			depths[state] = longest;
+		}
+		return depths[state];
+	}
+
+	/**
+	 * @return number of words that start at state, memoized in words
+	 */
+	private int countWords(int state, int[] words) {
+		if (words[state] < 0) {
+			int count = isWord(state) ? 1 : 0;
+			for (int e = first[state]; e < first[state + 1]; e++)
+				count += countWords(targets[e], words);
+			words[state] = count;
+		}
+		return words[state];
+	}
+
+	/**
+	 * Builds a DawgDictionary from words added in ascending String order.
+	 * Only the path of the last word is kept unminimized, so the builder never
+	 * holds the full trie.
+	 */
+	public static class Builder {
+
+		/**
+		 * Adds the next word. Empty words and duplicates of the previous word are ignored.
+		 * @param word a word not smaller than the previous one
+		 * @throws IllegalArgumentException if words are out of order
+		 */
+		public void add(String word) {
+			if (word.isEmpty())
+				return;
+			int cmp = word.compareTo(previous);
+			if (cmp < 0)
+				throw new IllegalArgumentException("Words must be added in sorted order: " + word + " after " + previous);
+			if (cmp == 0)
+				return;
+
+			int common = 0;
+			while (common < word.length() && common < previous.length() && word.charAt(common) == previous.charAt(common))
+				common++;
+			minimize(common);
+
+			Node node = path.isEmpty() ? rootNode : path.get(path.size() - 1);
+			for (int i = common; i < word.length(); i++) {
+				Node next = new Node();
+				node.addEdge(word.charAt(i), next);
+				path.add(next);
+				node = next;
+			}
+			node.isFinal = true;
+			previous = word;
+			wordCount++;
+		}
+
+		/**
+		 * @return the frozen dictionary; the builder must not be used afterwards
+		 */
+		public DawgDictionary build() {
+			minimize(0);
+
+			// Number the states depth first so that the root is state 0
+			ArrayList<Node> order = new ArrayList<Node>();
+			number(rootNode, order);
+
+			int edgeTotal = 0;
+			for (Node n : order)
+				edgeTotal += n.count;
+
+			int[] first = new int[order.size() + 1];
+			char[] labels = new char[edgeTotal];
+			int[] targets = new int[edgeTotal];
+			long[] finals = new long[(order.size() + 63) / 64];
+
+			int e = 0;
+			for (int s = 0; s < order.size(); s++) {
+				Node n = order.get(s);
+				first[s] = e;
+				if (n.isFinal)
+					finals[s >>> 6] |= 1L << s;
+				for (int i = 0; i < n.count; i++, e++) {
+					labels[e] = n.labels[i];
+					targets[e] = n.targets[i].id;
+				}
+			}
+			first[order.size()] = e;
+			return new DawgDictionary(first, labels, targets, finals, wordCount);
+		}
+
+		/**
+		 * Replaces every node of the current path below depth downTo by an
+		 * equivalent registered node, or registers it.
+		 */
+		private void minimize(int downTo) {
+			for (int i = path.size() - 1; i >= downTo; i--) {
+				Node child = path.get(i);
+				Node parent = i == 0 ? rootNode : path.get(i - 1);
+				Node same = register.get(child);
+				if (same != null)
+					parent.targets[parent.count - 1] = same;
+				else
+					register.put(child, child);
+				path.remove(i);
+			}
+		}
+
+		private void number(Node n, ArrayList<Node> order) {
+			if (n.id >= 0)
+				return;
+			n.id = order.size();
+			order.add(n);
+			for (int i = 0; i < n.count; i++)
+				number(n.targets[i], order);
+		}
+
+		private final Node rootNode = new Node();
+		private final ArrayList<Node> path = new ArrayList<Node>();	// nodes of the last word, not yet minimized
+		private final HashMap<Node, Node> register = new HashMap<Node, Node>();
+		private String previous = "";
+		private int wordCount;
+	}
+
+	/**
+	 * A state while building. Two nodes are equal when they have the same finality
+	 * and the same edges to the very same (already minimized) nodes.
+	 */
+	private static class Node {
+		void addEdge(char c, Node target) {
+			if (count == labels.length) {
+				labels = Arrays.copyOf(labels, count * 2);
+				targets = Arrays.copyOf(targets, count * 2);
+			}
+			labels[count] = c;
+			targets[count++] = target;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			Node n = (Node) o;
+			if (n.isFinal != isFinal || n.count != count)
+				return false;
+			for (int i = 0; i < count; i++)
+				if (n.labels[i] != labels[i] || n.targets[i] != targets[i])
+					return false;
+			return true;
+		}
+
+		@Override
+		public int hashCode() {
+			int h = isFinal ? 1 : 0;
+			for (int i = 0; i < count; i++)
+				h = 31 * (31 * h + labels[i]) + System.identityHashCode(targets[i]);
+			return h;
+		}
+
+		boolean isFinal;
+		char[] labels = new char[2];
+		Node[] targets = new Node[2];
+		int count;
+		int id = -1;
+	}
+
+	private final int[] first;		// first edge of each state, plus one past the last edge
+	private final char[] labels;	// edge labels, sorted within a state
+	private final int[] targets;	// edge target states
+	private final long[] finals;	// bit set of word-ending states
+	private final int[] ranks;		// words before the edge's words, counted from its state
+	private final int wordCount;
+	private final int maxWordLength;
+}
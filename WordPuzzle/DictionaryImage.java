@@ -0,0 +1,278 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+
+/**
+ *
+ * @author Gayatri
+ * Precompiled dictionary image: the words and all their prefixes written once to a
+ * binary file as an open addressing hash table, and answered straight from a read-only
+ * memory mapping of that file.
+ *
+ * Opening an image only maps and checks it; nothing is parsed or copied onto the heap,
+ * so a new JVM can answer lookups in milliseconds, and all JVMs that open the same image
+ * share its pages in the page cache.
+ *
+ * Layout (big endian):
+ *   header    MAGIC, VERSION, slot count (a power of 2), key count, key area offset,
+ *             and the length and last modified time of the text file it was built from
+ *   slots     slot count x (int hash, int key offset + 1); offset 0 marks an empty slot
+ *   key area  per key: byte kind (KIND_WORD or KIND_PREFIX), unsigned short length, UTF-8 bytes
+ *
+ * Slots are probed linearly from hash & (slot count - 1), at a load factor of at most 0.5.
+ * The hash is String.hashCode, which the Java language fixes for every JVM.
+ *
+ */
+
+public class DictionaryImage implements LookupTable<String> {
+
+	/**
+	 * Builds an image from a text dictionary.
+	 * Usage: java DictionaryImage dictionary.txt dictionary.img
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length != 2) {
+			System.out.println("Usage: java DictionaryImage <dictionary text file> <image file>");
+			return;
+		}
+		long startTime = System.currentTimeMillis();
+		int keys = write(new File(args[0]), new File(args[1]));
+		long endTime = System.currentTimeMillis();
+		System.out.println("Wrote " + keys + " keys to " + args[1] + " in " + (endTime - startTime) + " ms");
+	}
+
+	/**
+	 * Writes the image of a text dictionary. The image is written to a temporary file
+	 * and then renamed, so a JVM opening it never sees a half written image.
+	 * @param dictionary the dictionary text file
+	 * @param image the image file to write
+	 * @return number of keys (words and prefixes) in the image
+	 * @throws IOException if a file cannot be read or written
+	 */
+	public static int write(File dictionary, File image) throws IOException {
+		// kind of every key; a key that is a word anywhere stays a word
+		HashMap<String, Byte> kinds = new HashMap<String, Byte>();
+		for (String word : new DictionaryLoader().readWords(dictionary)) {
+			for (int i = word.length() - 1; i >= 1; i--) {
+				if (kinds.putIfAbsent(word.substring(0, i), KIND_PREFIX) != null)
+					break;
+			}
+			kinds.put(word, KIND_WORD);
+		}
+
+		int slotCount = MIN_SLOTS;
+		while (slotCount < 2L * kinds.size())
+			slotCount <<= 1;
+		int[] hashes = new int[slotCount];
+		int[] offsets = new int[slotCount];
+
+		ByteBuffer keyArea = ByteBuffer.allocate(1 << 16);
+		int mask = slotCount - 1;
+		for (Map.Entry<String, Byte> e : kinds.entrySet()) {
+			byte[] bytes = e.getKey().getBytes(StandardCharsets.UTF_8);
+			if (bytes.length > MAX_KEY_BYTES)
+				throw new IOException("Word longer than " + MAX_KEY_BYTES + " bytes: " + e.getKey());
+			if (keyArea.remaining() < bytes.length + 3) {
+				if (keyArea.capacity() > Integer.MAX_VALUE / 2)
+					throw new IOException("Dictionary too large for an image");
+				ByteBuffer bigger = ByteBuffer.allocate(Math.max(2 * keyArea.capacity(), keyArea.capacity() + bytes.length + 3));
+				keyArea.flip();
+				keyArea = bigger.put(keyArea);
+			}
+
+			int hash = e.getKey().hashCode();
+			int i = hash & mask;
+			while (offsets[i] != 0)
+				i = (i + 1) & mask;
+			hashes[i] = hash;
+			offsets[i] = keyArea.position() + 1;
+
+			keyArea.put(e.getValue());
+			keyArea.putShort((short) bytes.length);
+			keyArea.put(bytes);
+		}
+		keyArea.flip();
+
+		long keyAreaOffset = HEADER_BYTES + (long) slotCount * SLOT_BYTES;
+		if (keyAreaOffset + keyArea.limit() > Integer.MAX_VALUE)
+			throw new IOException("Dictionary too large for an image");
+
+		ByteBuffer out = ByteBuffer.allocate((int) keyAreaOffset);
+		out.putInt(MAGIC).putInt(VERSION).putInt(slotCount).putInt(kinds.size()).putInt((int) keyAreaOffset);
+		out.putLong(dictionary.length()).putLong(dictionary.lastModified());
+		out.position(HEADER_BYTES);
+		for (int i = 0; i < slotCount; i++)
+			out.putInt(hashes[i]).putInt(offsets[i]);
+		out.flip();
+
+		File temp = new File(image.getAbsoluteFile().getParentFile(), image.getName() + ".tmp");
+		try (FileChannel channel = FileChannel.open(temp.toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			while (out.hasRemaining())
+				channel.write(out);
+			while (keyArea.hasRemaining())
+				channel.write(keyArea);
+			channel.force(false);
+		}
+		Files.move(temp.toPath(), image.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		return kinds.size();
+	}
+
+	/**
+	 * Maps an image file.
+	 * @param image the image file
+	 * @return the dictionary
+	 * @throws IOException if the file cannot be read or is not a valid image
+	 */
+	public static DictionaryImage open(File image) throws IOException {
+		try (FileChannel channel = FileChannel.open(image.toPath(), StandardOpenOption.READ)) {
+			long length = channel.size();
+			if (length < HEADER_BYTES || length > Integer.MAX_VALUE)
+				throw new IOException("Not a dictionary image: " + image);
+			// the mapping stays valid after the channel is closed
+			return new DictionaryImage(image, channel.map(FileChannel.MapMode.READ_ONLY, 0, length));
+		}
+	}
+
+	/**
+	 * Maps the image of a text dictionary, first rebuilding it if it is missing or was
+	 * built from a different version of the text file.
+	 * @param dictionary the dictionary text file
+	 * @param image the image file
+	 * @return the dictionary
+	 * @throws IOException if a file cannot be read or written
+	 */
+	public static DictionaryImage openOrBuild(File dictionary, File image) throws IOException {
+		if (image.isFile()) {
+			DictionaryImage di = open(image);
+			if (di.isBuiltFrom(dictionary))
+				return di;
+		}
+		write(dictionary, image);
+		return open(image);
+	}
+
+	/**
+	 * @param x the word to search for
+	 * @return true if x is a word of the dictionary
+	 */
+	public boolean contains(String x) {
+		return kind(x) == KIND_WORD;
+	}
+
+	/**
+	 * @return WordPuzzle.WORD for a word, WordPuzzle.PREFIX for a proper prefix of a word, else null
+	 */
+	public String get(String key) {
+		switch (kind(key)) {
+			case KIND_WORD:
+				return WordPuzzle.WORD;
+			case KIND_PREFIX:
+				return WordPuzzle.PREFIX;
+			default:
+				return null;
+		}
+	}
+
+	/**
+	 * @return number of keys (words and prefixes) in the image
+	 */
+	public int size() {
+		return keyCount;
+	}
+
+	/**
+	 * @param dictionary a dictionary text file
+	 * @return true if the image was built from this version of the file
+	 */
+	public boolean isBuiltFrom(File dictionary) {
+		return image.getLong(SOURCE_LENGTH) == dictionary.length()
+				&& image.getLong(SOURCE_MODIFIED) == dictionary.lastModified();
+	}
+
+	private DictionaryImage(File file, MappedByteBuffer image) throws IOException {
+		this.image = image;
+		slotCount = image.getInt(8);
+		keyCount = image.getInt(12);
+		keyAreaOffset = image.getInt(16);
+		if (image.getInt(0) != MAGIC || image.getInt(4) != VERSION || slotCount < MIN_SLOTS
+				|| Integer.bitCount(slotCount) != 1 || keyAreaOffset != HEADER_BYTES + (long) slotCount * SLOT_BYTES
+				|| keyAreaOffset > image.limit())
+			throw new IOException("Not a dictionary image: " + file);
+	}
+
+	/**
+	 * Absolute reads only, so one mapping can be shared by any number of threads.
+	 * At most slotCount slots are probed, so a damaged image without an empty slot cannot loop forever.
+	 * @return the kind byte of key, or 0 if key is not in the image
+	 */
+	private byte kind(String key) {
+		int hash = key.hashCode();
+		int mask = slotCount - 1;
+		for (int i = hash & mask, probes = 0; probes < slotCount; i = (i + 1) & mask, probes++) {
+			int slot = HEADER_BYTES + i * SLOT_BYTES;
+			int offset = image.getInt(slot + 4);
+			if (offset == 0)
+				return 0;
+			if (image.getInt(slot) == hash) {
+				int record = keyAreaOffset + offset - 1;
+				if (keyEquals(record + 3, image.getShort(record + 1) & 0xFFFF, key))
+					return image.get(record);
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Compares the UTF-8 bytes at pos with key. ASCII keys are compared in place;
+	 * only keys with other characters are encoded.
+	 */
+	private boolean keyEquals(int pos, int length, String key) {
+		int n = key.length();
+		if (length < n)
+			return false;
+		for (int i = 0; i < n; i++) {
+			char c = key.charAt(i);
+			if (c >= 0x80)
+				return length == n ? false : utf8Equals(pos, length, key);
+			if (image.get(pos + i) != c)
+				return false;
+		}
+		return length == n;
+	}
+
+	private boolean utf8Equals(int pos, int length, String key) {
+		byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+		if (bytes.length != length)
+			return false;
+		for (int i = 0; i < length; i++)
+			if (image.get(pos + i) != bytes[i])
+				return false;
+		return true;
+	}
+
+	private static final int MAGIC = 0x57504449;		// "WPDI"
+	private static final int VERSION = 1;
+	private static final int SOURCE_LENGTH = 20;
+	private static final int SOURCE_MODIFIED = 28;
+	private static final int HEADER_BYTES = 64;
+	private static final int SLOT_BYTES = 8;
+	private static final int MIN_SLOTS = 16;
+	private static final int MAX_KEY_BYTES = 0xFFFF;
+	private static final byte KIND_WORD = 1;
+	private static final byte KIND_PREFIX = 2;
+
+	private final MappedByteBuffer image;		// big endian, the ByteBuffer default
+	private final int slotCount;
+	private final int keyCount;
+	private final int keyAreaOffset;
+}
@@ -0,0 +1,402 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+
+/**
+ *
+ * @author Gayatri
+ * Loads a dictionary text file of whitespace separated words.
+ *
+ * The file is memory mapped with NIO and cut into chunks that are parsed in parallel.
+ * A chunk owns the words that start inside it, so a word cut by a chunk boundary is
+ * read whole by the chunk it starts in. The chunks are joined in file order, so the
+ * words come out exactly as a Scanner would read them.
+ *
+ * Every load records its time, so the caller can report words per second.
+ *
+ */
+
+public class DictionaryLoader {
+
+	/**
+	 * Construct a loader using one thread per available processor.
+	 */
+	public DictionaryLoader() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Construct a loader.
+	 * @param parallelism number of threads parsing chunks
+	 */
+	public DictionaryLoader(int parallelism) {
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * Reads all words of a file, in file order.
+	 * @param file the dictionary file
+	 * @return the words
+	 * @throws IOException if the file cannot be read
+	 */
+	public String[] readWords(File file) throws IOException {
+		long start = System.nanoTime();
+		String[] words = parse(file);
+		finish(start, words.length);
+		return words;
+	}
+
+	/**
+	 * Loads a dictionary of words into a MyHashTable built once for all of them.
+	 * @param file the dictionary file
+	 * @param options MyHashTable options
+	 * @return the table
+	 * @throws IOException if the file cannot be read
+	 */
+	public MyHashTable<String> loadDictionary(File file, int options) throws IOException {
+		long start = System.nanoTime();
+		String[] words = parse(file);
+		MyHashTable<String> dictionary = new MyHashTable.Builder<String>(options, MyHashTable.DEFAULT_MAX_LOAD, words.length).putAll(Arrays.asList(words), null).build();
+		finish(start, words.length);
+		return dictionary;
+	}
+
+	/**
+	 * Loads a dictionary of words into a MyHashTable fronted by a Bloom filter of the words.
+	 * @param file the dictionary file
+	 * @param options MyHashTable options
+	 * @param falsePositiveRate the wanted false positive rate of the filter
+	 * @return the filtered table
+	 * @throws IOException if the file cannot be read
+	 */
+	public BloomFilteredTable<String> loadFilteredDictionary(File file, int options, double falsePositiveRate) throws IOException {
+		long start = System.nanoTime();
+		String[] words = parse(file);
+		MyHashTable<String> dictionary = new MyHashTable.Builder<String>(options, MyHashTable.DEFAULT_MAX_LOAD, words.length).putAll(Arrays.asList(words), null).build();
+		BloomFilteredTable<String> filtered = new BloomFilteredTable<String>(dictionary, Arrays.asList(words), words.length, falsePositiveRate);
+		finish(start, words.length);
+		return filtered;
+	}
+
+	/**
+	 * Loads a dictionary of words and all their prefixes. Words map to WordPuzzle.WORD
+	 * and proper prefixes of words to WordPuzzle.PREFIX, whatever the order of the file.
+	 * @param file the dictionary file
+	 * @param options MyHashTable options
+	 * @param maxLoad the load factor of the table
+	 * @return the table
+	 * @throws IOException if the file cannot be read
+	 */
+	public MyHashTable<String> loadPrefixDictionary(File file, int options, double maxLoad) throws IOException {
+		long start = System.nanoTime();
+		String[] words = parse(file);
+		// Dictionary.txt has about 2.3 keys per word
+		MyHashTable<String> prefixDictionary = MyHashTable.presized((int) (words.length * 2.5), options, maxLoad);
+
+		for (String word : words) {
+			// Once a prefix is present all shorter ones are too, so go from the longest down
+			for (int i = word.length() - 1; i >= 1; i--) {
+				String prefix = word.substring(0, i);
+				if (prefixDictionary.contains(prefix))
+					break;
+				prefixDictionary.put(prefix, WordPuzzle.PREFIX);
+			}
+			prefixDictionary.put(word, WordPuzzle.WORD);
+		}
+		finish(start, words.length);
+		return prefixDictionary;
+	}
+
+	/**
+	 * Loads a dictionary of words into a CuckooHashTable, whose lookups read at most two buckets.
+	 * @param file the dictionary file
+	 * @return the table, with the value WordPuzzle.WORD for every word
+	 * @throws IOException if the file cannot be read
+	 */
+	public CuckooHashTable loadCuckooDictionary(File file) throws IOException {
+		long start = System.nanoTime();
+		String[] words = parse(file);
+		CuckooHashTable dictionary = new CuckooHashTable.Builder().putAll(Arrays.asList(words), WordPuzzle.WORD).build();
+		finish(start, words.length);
+		return dictionary;
+	}
+
+	/**
+	 * Loads a dictionary of words and all their prefixes into a CuckooHashTable, with the
+	 * same values as loadPrefixDictionary.
+	 * @param file the dictionary file
+	 * @return the table
+	 * @throws IOException if the file cannot be read
+	 */
+	public CuckooHashTable loadCuckooPrefixDictionary(File file) throws IOException {
+		long start = System.nanoTime();
+		String[] words = parse(file);
+		CuckooHashTable.Builder builder = new CuckooHashTable.Builder();
+		for (String word : words) {
+			// Once a prefix is present all shorter ones are too, so go from the longest down
+			for (int i = word.length() - 1; i >= 1; i--) {
+				String prefix = word.substring(0, i);
+				if (builder.contains(prefix))
+					break;
+				builder.put(prefix, WordPuzzle.PREFIX);
+			}
+			builder.put(word, WordPuzzle.WORD);
+		}
+		CuckooHashTable prefixDictionary = builder.build();
+		finish(start, words.length);
+		return prefixDictionary;
+	}
+
+	/**
+	 * Loads a dictionary of words into a PerfectHashTable, which keeps the words and about
+	 * 3.5 bits per word.
+	 * @param file the dictionary file
+	 * @return the table, with the value WordPuzzle.WORD for every word
+	 * @throws IOException if the file cannot be read
+	 */
+	public PerfectHashTable loadPerfectDictionary(File file) throws IOException {
+		long start = System.nanoTime();
+		String[] words = parse(file);
+		PerfectHashTable dictionary = new PerfectHashTable.Builder().putAll(Arrays.asList(words), WordPuzzle.WORD).build();
+		finish(start, words.length);
+		return dictionary;
+	}
+
+	/**
+	 * Loads a dictionary of words and all their prefixes into a PerfectHashTable, with the
+	 * same values as loadPrefixDictionary.
+	 * @param file the dictionary file
+	 * @return the table
+	 * @throws IOException if the file cannot be read
+	 */
+	public PerfectHashTable loadPerfectPrefixDictionary(File file) throws IOException {
+		long start = System.nanoTime();
+		String[] words = parse(file);
+		PerfectHashTable.Builder builder = new PerfectHashTable.Builder();
+		for (String word : words) {
+			// Once a prefix is present all shorter ones are too, so go from the longest down
+			for (int i = word.length() - 1; i >= 1; i--) {
+				String prefix = word.substring(0, i);
+				if (builder.contains(prefix))
+					break;
+				builder.put(prefix, WordPuzzle.PREFIX);
+			}
+			builder.put(word, WordPuzzle.WORD);
+		}
+		PerfectHashTable prefixDictionary = builder.build();
+		finish(start, words.length);
+		return prefixDictionary;
+	}
+
+	/**
+	 * Loads a dictionary of words into a ConcurrentHashTable, inserting every chunk
+	 * from its own thread.
+	 * @param file the dictionary file
+	 * @return the table
+	 * @throws IOException if the file cannot be read
+	 */
+	public ConcurrentHashTable<String> loadConcurrent(File file) throws IOException {
+		long start = System.nanoTime();
+		List<Chunk> chunks = chunks(file);
+		ConcurrentHashTable<String> dictionary = new ConcurrentHashTable<String>((int) Math.min(file.length() / 4, 1 << 28));	// ~2 slots per 8 byte word
+		int count = 0;
+		maxWordLength = 0;
+		for (ArrayList<String> part : run(chunks, chunk -> {
+			ArrayList<String> words = chunk.parse();
+			for (String word : words)
+				dictionary.insert(word);
+			return words;
+		})) {
+			count += part.size();
+			for (String word : part)
+				maxWordLength = Math.max(maxWordLength, word.length());
+		}
+		finish(start, count);
+		return dictionary;
+	}
+
+	/**
+	 * @return time taken by the last load, in milliseconds
+	 */
+	public long getLoadMillis() {
+		return loadNanos / 1000000;
+	}
+
+	/**
+	 * @return number of words read by the last load
+	 */
+	public int getWordCount() {
+		return wordCount;
+	}
+
+	/**
+	 * @return length of the longest word read by the last load, e.g. for WordPuzzle.findLongestWords
+	 */
+	public int getMaxWordLength() {
+		return maxWordLength;
+	}
+
+	/**
+	 * @return words per second of the last load
+	 */
+	public double getWordsPerSecond() {
+		return loadNanos == 0 ? 0 : wordCount * 1e9 / loadNanos;
+	}
+
+	private String[] parse(File file) throws IOException {
+		int count = 0;
+		List<ArrayList<String>> parts = run(chunks(file), Chunk::parse);
+		for (ArrayList<String> part : parts)
+			count += part.size();
+
+		String[] words = new String[count];
+		int i = 0;
+		maxWordLength = 0;
+		for (ArrayList<String> part : parts)
+			for (String word : part) {
+				words[i++] = word;
+				maxWordLength = Math.max(maxWordLength, word.length());
+			}
+		return words;
+	}
+
+	private void finish(long start, int words) {
+		loadNanos = System.nanoTime() - start;
+		wordCount = words;
+	}
+
+	/**
+	 * Cuts the file into about 4 chunks per thread, none smaller than MIN_CHUNK.
+	 */
+	private List<Chunk> chunks(File file) throws IOException {
+		long size = file.length();
+		if (!file.isFile())
+			throw new IOException("Not a file: " + file);
+
+		long count = Math.max(1, Math.min(parallelism * 4L, size / MIN_CHUNK));
+		count = Math.max(count, (size + MAX_CHUNK - 1) / MAX_CHUNK);
+		List<Chunk> chunks = new ArrayList<Chunk>();
+		for (long i = 0; i < count; i++)
+			chunks.add(new Chunk(file, size * i / count, size * (i + 1) / count, size));
+		return chunks;
+	}
+
+	private interface ChunkTask<T> {
+		T apply(Chunk chunk) throws IOException;
+	}
+
+	/**
+	 * Runs a task on every chunk and returns the results in chunk order.
+	 */
+	private <T> List<T> run(List<Chunk> chunks, ChunkTask<T> task) throws IOException {
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			List<Callable<T>> calls = new ArrayList<Callable<T>>();
+			for (Chunk chunk : chunks)
+				calls.add(() -> task.apply(chunk));
+
+			List<T> results = new ArrayList<T>();
+			for (Future<T> f : pool.invokeAll(calls))
+				results.add(f.get());
+			return results;
+		}
+		catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException)
+				throw (IOException) e.getCause();
+			throw new IOException(e.getCause());
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException(e);
+		}
+		finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * The bytes [start, end) of the file. The mapping starts one byte early, to see
+	 * whether the first word began in the previous chunk, and runs up to OVERLAP bytes
+	 * past end to finish the last word.
+	 */
+	private static class Chunk {
+		Chunk(File file, long start, long end, long fileSize) {
+			this.file = file;
+			this.start = start;
+			this.end = end;
+			this.fileSize = fileSize;
+		}
+
+		ArrayList<String> parse() throws IOException {
+			ArrayList<String> words = new ArrayList<String>();
+			if (start == end)
+				return words;
+
+			long mapStart = Math.max(0, start - 1);
+			long mapEnd = Math.min(fileSize, end + OVERLAP);
+			try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+				MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, mapStart, mapEnd - mapStart);
+				int limit = buffer.limit();
+				int own = (int) (end - mapStart);		// words must start before this
+				int i = (int) (start - mapStart);
+				byte[] scratch = new byte[64];
+
+				if (start > 0 && !isSpace(buffer.get(i - 1)))
+					while (i < limit && !isSpace(buffer.get(i)))	// belongs to the previous chunk
+						i++;
+
+				for (;;) {
+					while (i < own && isSpace(buffer.get(i)))
+						i++;
+					if (i >= own)
+						break;
+
+					int wordStart = i;
+					boolean ascii = true;
+					while (i < limit && !isSpace(buffer.get(i))) {
+						ascii &= buffer.get(i) >= 0;
+						i++;
+					}
+					if (i == limit && mapEnd < fileSize)
+						throw new IOException("Word longer than " + OVERLAP + " bytes at offset " + (mapStart + wordStart));
+
+					int length = i - wordStart;
+					if (length > scratch.length)
+						scratch = new byte[Math.max(length, 2 * scratch.length)];
+					buffer.get(wordStart, scratch, 0, length);
+					words.add(new String(scratch, 0, length, ascii ? StandardCharsets.ISO_8859_1 : StandardCharsets.UTF_8));
+				}
+			}
+			return words;
+		}
+
+		private static boolean isSpace(byte b) {
+			return b == ' ' || b == '\n' || b == '\r' || b == '\t' || b == '\f';
+		}
+
+		private final File file;
+		private final long start;
+		private final long end;
+		private final long fileSize;
+	}
+
+	private static final long MIN_CHUNK = 256 * 1024;
+	private static final long MAX_CHUNK = 1L << 30;		// well under the 2 GB limit of one mapping
+	private static final int OVERLAP = 1 << 16;
+
+	private final int parallelism;
+	private long loadNanos;
+	private int wordCount;
+	private int maxWordLength;
+}
@@ -0,0 +1,64 @@
+/**
+ *
+ * @author Gayatri
+ * A MatchVisitor that passes each word on only the first time it is found, so the
+ * words of a grid come out without repeats.
+ *
+ * The words seen are one bit each in a bit set over the ids of a DawgDictionary
+ * (DawgDictionary.indexOf), so it takes size() / 8 bytes however many words are found,
+ * and no String is kept or hashed. Words that are not in the DAWG are always passed on.
+ *
+ */
+
+public class DistinctMatches implements MatchVisitor {
+
+	/**
+	 * Only counts the distinct words.
+	 * @param dictionary the dictionary the words are looked up in
+	 */
+	public DistinctMatches(DawgDictionary dictionary) {
+		this(dictionary, null);
+	}
+
+	/**
+	 * @param dictionary the dictionary the words are looked up in
+	 * @param next receives the first match of every word, or null
+	 */
+	public DistinctMatches(DawgDictionary dictionary, MatchVisitor next) {
+		this.dictionary = dictionary;
+		this.next = next;
+		seen = new long[(dictionary.size() + 63) >>> 6];
+	}
+
+	public boolean visit(String word, int row, int col, int direction) {
+		int id = dictionary.indexOf(word);
+		if (id >= 0) {
+			if ((seen[id >>> 6] & (1L << id)) != 0)
+				return true;
+			seen[id >>> 6] |= 1L << id;
+			count++;
+		}
+		return next == null || next.visit(word, row, col, direction);
+	}
+
+	/**
+	 * @param word a word
+	 * @return true if the word has been passed on
+	 */
+	public boolean contains(String word) {
+		int id = dictionary.indexOf(word);
+		return id >= 0 && (seen[id >>> 6] & (1L << id)) != 0;
+	}
+
+	/**
+	 * @return number of distinct dictionary words passed on
+	 */
+	public int count() {
+		return count;
+	}
+
+	private final DawgDictionary dictionary;
+	private final MatchVisitor next;
+	private final long[] seen;		// bit id is set once the word with that id is seen
+	private int count;
+}
@@ -0,0 +1,66 @@
+/**
+ *
+ * @author Gayatri
+ * The letters of a WordPuzzle, addressed by row and column.
+ * Implemented by CharGrid, over a char[][] on the heap, and by ByteGrid, one byte per
+ * cell outside the heap, for grids too large for char[][].
+ *
+ */
+
+public interface Grid {
+
+	/**
+	 * @return number of rows
+	 */
+	int rows();
+
+	/**
+	 * @return number of columns
+	 */
+	int cols();
+
+	/**
+	 * @param row row of the cell
+	 * @param col column of the cell
+	 * @return the letter of the cell
+	 */
+	char get(int row, int col);
+
+	/**
+	 * @param row row of the cell
+	 * @param col column of the cell
+	 * @param letter the new letter of the cell
+	 */
+	void set(int row, int col, char letter);
+
+	/**
+	 * Reads count letters from (row, col) in one of the 8 WordPuzzle directions.
+	 * The caller guarantees that the walk stays inside the grid.
+	 * @param row row of the first letter
+	 * @param col column of the first letter
+	 * @param count number of letters
+	 * @param direction one of the 8 WordPuzzle directions
+	 * @return the letters as a String
+	 */
+	default String read(int row, int col, int count, int direction) {
+		char[] word = new char[count];
+		for (int i = 0; i < count; i++) {
+			word[i] = get(row, col);
+			row += WordPuzzle.rowDelta[direction];
+			col += WordPuzzle.colDelta[direction];
+		}
+		return new String(word);
+	}
+
+	/**
+	 * Copies the letters of a row as Latin-1 bytes; letters above 0xFF are read as 0xFF.
+	 * @param row the row
+	 * @param letters array of at least cols() bytes
+	 */
+	default void readRow(int row, byte[] letters) {
+		for (int col = 0; col < cols(); col++) {
+			char letter = get(row, col);
+			letters[col] = (byte) (letter > 0xFF ? 0xFF : letter);
+		}
+	}
+}
@@ -0,0 +1,103 @@
+import java.util.ArrayList;
+
+
+/**
+ *
+ * @author Gayatri
+ * Scan engine that extends the 8 direction walks from a start cell one character at a
+ * time, advancing a DawgDictionary cursor per direction instead of rebuilding and hashing
+ * the candidate string for every length.
+ *
+ * All 8 walks from a cell advance in lockstep by length, in the same direction order as
+ * WordPuzzle.findWords, so the words come out in exactly the same order. A walk stops
+ * at the grid border or as soon as no dictionary word continues it. A String is only
+ * created when a walk lands on a word, by reading the grid back along the walk.
+ *
+ */
+
+public class GridScanner {
+
+	/**
+	 * @param dictionary the words to look for
+	 */
+	public GridScanner(DawgDictionary dictionary) {
+		this.dictionary = dictionary;
+	}
+
+	/**
+	 * Finds words from the grid that match with the words in the dictionary
+	 * @param grid 2D character array of WordPuzzle
+	 * @return A list of all words that matches from grid to dictionary
+	 */
+	public ArrayList<String> findWords(char[][] grid) {
+		return findWords(new CharGrid(grid));
+	}
+
+	/**
+	 * Finds words from the grid that match with the words in the dictionary
+	 * @param grid word grid of WordPuzzle
+	 * @return A list of all words that matches from grid to dictionary
+	 */
+	public ArrayList<String> findWords(Grid grid) {
+		ArrayList<String> wordsFound = new ArrayList<String>();
+		scanRows(grid, 0, grid.rows(), wordsFound);
+		return wordsFound;
+	}
+
+	/**
+	 * Scans the start cells of rows [rowFrom, rowTo); walks may leave that band.
+	 * @param grid word grid of WordPuzzle
+	 * @param rowFrom first row of start cells
+	 * @param rowTo one past the last row of start cells
+	 * @param wordsFound list the matching words are appended to
+	 */
+	public void scanRows(Grid grid, int rowFrom, int rowTo, ArrayList<String> wordsFound) {
+		int rowCount = grid.rows();
+		int colCount = grid.cols();
+		int[] states = new int[WordPuzzle.DIRECTIONS + 1];
+
+		for (int row = rowFrom; row < rowTo; row++) {
+			for (int col = 0; col < colCount; col++) {
+				char first = grid.get(row, col);
+				int start = dictionary.step(dictionary.root(), first);
+				if (start < 0)
+					continue;	// no word starts with this letter in any direction
+
+				if (dictionary.isWord(start))
+					wordsFound.add(String.valueOf(first));
+				if (!dictionary.hasContinuation(start))
+					continue;
+
+				int alive = 0;
+				for (int d = 1; d <= WordPuzzle.DIRECTIONS; d++) {
+					states[d] = start;
+					alive++;
+				}
+
+				for (int length = 2; alive > 0; length++) {
+					for (int d = 1; d <= WordPuzzle.DIRECTIONS; d++) {
+						if (states[d] < 0)
+							continue;
+
+						int r = row + WordPuzzle.rowDelta[d] * (length - 1);
+						int c = col + WordPuzzle.colDelta[d] * (length - 1);
+						int next = -1;
+						if (r >= 0 && r < rowCount && c >= 0 && c < colCount)
+							next = dictionary.step(states[d], grid.get(r, c));
+
+						if (next >= 0 && dictionary.isWord(next))
+							wordsFound.add(grid.read(row, col, length, d));
+						if (next >= 0 && !dictionary.hasContinuation(next))
+							next = -1;
+
+						states[d] = next;
+						if (next < 0)
+							alive--;
+					}
+				}
+			}
+		}
+	}
+
+	private final DawgDictionary dictionary;
+}
@@ -0,0 +1,228 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+
+/**
+ *
+ * @author Gayatri
+ * Keeps the words of a grid up to date while single cells of it are edited.
+ *
+ * The words are kept per line: for each of the 8 directions, every row, column or
+ * diagonal of the grid read in that direction has its own list of matches, found by
+ * streaming the line through an AhoCorasick automaton. Editing a cell only rescans the
+ * 8 lines through that cell (its row and column, and both diagonals, in both
+ * directions), so an edit costs O(rows + cols) instead of a full rescan of the grid.
+ * A count per word is kept next to the lists, so the multiset of found words is always
+ * the same as WordPuzzle.findWords would return for the edited grid.
+ *
+ * The grid is edited in place, so a WordPuzzle sharing it sees every edit. Changes made
+ * to the grid without this class are not noticed.
+ *
+ */
+
+public class IncrementalSolver {
+
+	/**
+	 * Solves the whole grid once.
+	 * @param grid 2D character array of WordPuzzle, edited in place from now on
+	 * @param automaton An automaton built from all words of Dictionary text file
+	 */
+	public IncrementalSolver(char[][] grid, AhoCorasick automaton) {
+		this(new CharGrid(grid), automaton);
+	}
+
+	/**
+	 * Solves the whole grid once.
+	 * @param grid word grid of WordPuzzle, edited in place from now on
+	 * @param automaton An automaton built from all words of Dictionary text file
+	 */
+	public IncrementalSolver(Grid grid, AhoCorasick automaton) {
+		this.grid = grid;
+		this.automaton = automaton;
+		rowCount = grid.rows();
+		colCount = grid.cols();
+		matches = new ArrayList<ArrayList<ArrayList<String>>>(WordPuzzle.DIRECTIONS + 1);
+		matches.add(null);		// directions are numbered from 1
+		for (int d = 1; d <= WordPuzzle.DIRECTIONS; d++) {
+			matches.add(new ArrayList<ArrayList<String>>(Collections.nCopies(lineCount(d), (ArrayList<String>) null)));
+			for (int row = 0; row < rowCount; row++)
+				for (int col = 0; col < colCount; col++)
+					if (isLineStart(row, col, d))
+						rescan(d, row, col);
+		}
+	}
+
+	/**
+	 * Changes one cell and updates the words.
+	 * @param row row of the cell
+	 * @param col column of the cell
+	 * @param letter the new letter
+	 */
+	public void setCell(int row, int col, char letter) {
+		checkCell(row, col);
+		if (grid.get(row, col) == letter)
+			return;
+		grid.set(row, col, letter);
+		for (int d = 1; d <= WordPuzzle.DIRECTIONS; d++)
+			rescanThrough(d, row, col);
+	}
+
+	/**
+	 * Changes several cells and updates the words, rescanning each affected line once.
+	 * @param rows row of each cell
+	 * @param cols column of each cell
+	 * @param letters the new letter of each cell
+	 */
+	public void setCells(int[] rows, int[] cols, char[] letters) {
+		if (rows.length != cols.length || rows.length != letters.length)
+			throw new IllegalArgumentException("rows, cols and letters must have the same length");
+		for (int i = 0; i < rows.length; i++)
+			checkCell(rows[i], cols[i]);
+
+		// Apply every edit first: a later edit may hit a line an earlier one already marked
+		boolean[] changed = new boolean[rows.length];
+		for (int i = 0; i < rows.length; i++) {
+			changed[i] = grid.get(rows[i], cols[i]) != letters[i];
+			grid.set(rows[i], cols[i], letters[i]);
+		}
+
+		HashSet<Long> lines = new HashSet<Long>();
+		for (int i = 0; i < rows.length; i++) {
+			if (!changed[i])
+				continue;
+			for (int d = 1; d <= WordPuzzle.DIRECTIONS; d++)
+				if (lines.add((long) d << 32 | lineId(d, rows[i], cols[i])))
+					rescanThrough(d, rows[i], cols[i]);
+		}
+	}
+
+	/**
+	 * @return the words found in the grid, repeats included, grouped line by line
+	 */
+	public ArrayList<String> getWords() {
+		ArrayList<String> wordsFound = new ArrayList<String>(size);
+		for (int d = 1; d <= WordPuzzle.DIRECTIONS; d++)
+			for (ArrayList<String> line : matches.get(d))
+				if (line != null)
+					wordsFound.addAll(line);
+		return wordsFound;
+	}
+
+	/**
+	 * @return how many times each word is found in the grid
+	 */
+	public Map<String, Integer> getWordCounts() {
+		return Collections.unmodifiableMap(counts);
+	}
+
+	/**
+	 * @param word a word
+	 * @return how many times the word is found in the grid
+	 */
+	public int count(String word) {
+		Integer n = counts.get(word);
+		return n == null ? 0 : n;
+	}
+
+	/**
+	 * @return number of words found, repeats included
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return the grid, with every edit applied
+	 */
+	public Grid getGrid() {
+		return grid;
+	}
+
+	private void checkCell(int row, int col) {
+		if (row < 0 || row >= rowCount || col < 0 || col >= colCount)
+			throw new IndexOutOfBoundsException("No cell (" + row + ", " + col + ") in a " + rowCount + " x " + colCount + " grid");
+	}
+
+	/**
+	 * Rescans the line of direction d that passes through (row, col).
+	 */
+	private void rescanThrough(int d, int row, int col) {
+		int dr = WordPuzzle.rowDelta[d];
+		int dc = WordPuzzle.colDelta[d];
+		while (!isLineStart(row, col, d)) {
+			row -= dr;
+			col -= dc;
+		}
+		rescan(d, row, col);
+	}
+
+	/**
+	 * Replaces the matches of the line of direction d that starts at (row, col).
+	 */
+	private void rescan(int d, int row, int col) {
+		int id = lineId(d, row, col);
+		ArrayList<String> old = matches.get(d).get(id);
+		if (old != null)
+			for (String word : old)
+				uncount(word);
+
+		ArrayList<String> found = new ArrayList<String>();
+		automaton.scanLine(grid, row, col, d, found);
+		for (String word : found)
+			counts.merge(word, 1, Integer::sum);
+		size += found.size();
+		matches.get(d).set(id, found.isEmpty() ? null : found);
+	}
+
+	private void uncount(String word) {
+		int n = counts.get(word);
+		if (n == 1)
+			counts.remove(word);
+		else
+			counts.put(word, n - 1);
+		size--;
+	}
+
+	private boolean isLineStart(int row, int col, int d) {
+		int r = row - WordPuzzle.rowDelta[d];
+		int c = col - WordPuzzle.colDelta[d];
+		return r < 0 || r >= rowCount || c < 0 || c >= colCount;
+	}
+
+	/**
+	 * Number of lines in direction d: rows, columns or diagonals.
+	 */
+	private int lineCount(int d) {
+		if (WordPuzzle.rowDelta[d] == 0)
+			return rowCount;
+		if (WordPuzzle.colDelta[d] == 0)
+			return colCount;
+		return rowCount == 0 ? 0 : rowCount + colCount - 1;
+	}
+
+	/**
+	 * Index of the line of direction d through (row, col); the same for every cell of it.
+	 */
+	private int lineId(int d, int row, int col) {
+		int dr = WordPuzzle.rowDelta[d];
+		int dc = WordPuzzle.colDelta[d];
+		if (dr == 0)
+			return row;
+		if (dc == 0)
+			return col;
+		if (dr == dc)
+			return col - row + rowCount - 1;		// diagonal
+		return row + col;							// anti-diagonal
+	}
+
+	private final Grid grid;
+	private final AhoCorasick automaton;
+	private final int rowCount;
+	private final int colCount;
+	private final ArrayList<ArrayList<ArrayList<String>>> matches;	// matches.get( direction ).get( line ), null if none
+	private final HashMap<String, Integer> counts = new HashMap<String, Integer>();
+	private int size;
+}
@@ -0,0 +1,21 @@
+/**
+ *
+ * @author Gayatri
+ * The data parallel step of StartCellFilter: which letters of a row belong to a set of
+ * Latin-1 letters, fixed when the kernel is constructed from a 256 bit set (4 longs).
+ * Kernels are immutable, so threads may share one. ScalarLetterKernel tests one letter
+ * at a time; VectorLetterKernel (in incubator/) tests a vector of letters at a time with
+ * jdk.incubator.vector.
+ *
+ */
+
+interface LetterKernel {
+
+	/**
+	 * Sets bit i of out for every letter i of the row that is in the set.
+	 * @param letters Latin-1 letters of a row
+	 * @param count number of letters
+	 * @param out bit set of at least count bits, all 0
+	 */
+	void members(byte[] letters, int count, long[] out);
+}
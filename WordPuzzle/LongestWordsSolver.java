@@ -0,0 +1,178 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+
+
+/**
+ *
+ * @author Gayatri
+ * Finds only the k longest distinct words of a grid instead of every word.
+ *
+ * A walk from a start cell in one direction cannot find a word longer than its reach:
+ * the number of cells up to the grid border, or the longest dictionary word if that is
+ * less. The walks are made in buckets of falling reach, so the walks with the most room
+ * come first, and the best k words so far are kept in a min-heap on length. As soon as
+ * the heap holds k words and none is shorter than the reach of the walks left, no walk
+ * can change the answer and the search stops.
+ *
+ * Each walk is the prefix method's: it stops as soon as its letters are neither a word
+ * nor a prefix of one. Among words of the same length the ones found first are kept.
+ * A solver can be reused for many grids, but by one thread at a time.
+ *
+ */
+
+public class LongestWordsSolver {
+
+	/**
+	 * @param prefixDictionary words mapped to WordPuzzle.WORD and their prefixes to WordPuzzle.PREFIX
+	 * @param maxWordLength length of the longest word of the dictionary
+	 */
+	public LongestWordsSolver(LookupTable<String> prefixDictionary, int maxWordLength) {
+		if (maxWordLength < 1)
+			throw new IllegalArgumentException("maxWordLength must be at least 1: " + maxWordLength);
+		dictionary = prefixDictionary;
+		this.maxWordLength = maxWordLength;
+	}
+
+	/**
+	 * Finds the k longest distinct words of the grid.
+	 * @param grid word grid of WordPuzzle
+	 * @param k number of words wanted
+	 * @return up to k matches, longest first
+	 */
+	public List<Match> find(Grid grid, int k) {
+		if (k < 1)
+			throw new IllegalArgumentException("k must be at least 1: " + k);
+		int rows = grid.rows();
+		int cols = grid.cols();
+		PriorityQueue<Candidate> best = new PriorityQueue<Candidate>(k, WORST_FIRST);
+		HashSet<String> kept = new HashSet<String>();
+		char[] line = new char[maxWordLength];
+		walkCount = 0;
+		found = 0;
+
+		search:
+		for (int reach = Math.min(maxWordLength, Math.max(rows, cols)); reach >= 1; reach--) {
+			for (int d = 1; d <= WordPuzzle.DIRECTIONS; d++) {
+				int dr = WordPuzzle.rowDelta[d];
+				int dc = WordPuzzle.colDelta[d];
+
+				// Start cells with at least this reach, less those with more: a frame
+				int rowFrom = from(dr, reach);
+				int rowTo = to(dr, rows, reach);
+				int colFrom = from(dc, reach);
+				int colTo = to(dc, cols, reach);
+				int innerRowFrom = 0, innerRowTo = 0, innerColFrom = 0, innerColTo = 0;
+				if (reach < maxWordLength) {
+					innerRowFrom = from(dr, reach + 1);
+					innerRowTo = to(dr, rows, reach + 1);
+					innerColFrom = from(dc, reach + 1);
+					innerColTo = to(dc, cols, reach + 1);
+				}
+
+				for (int row = rowFrom; row < rowTo; row++) {
+					boolean innerRow = row >= innerRowFrom && row < innerRowTo && innerColFrom < innerColTo;
+					for (int col = colFrom; col < colTo; col++) {
+						if (innerRow && col == innerColFrom) {
+							col = innerColTo - 1;	// these cells were walked with a larger reach
+							continue;
+						}
+						if (best.size() == k && best.peek().length >= reach)
+							break search;			// no walk left can find a longer word
+						walk(grid, row, col, d, reach, line, k, best, kept);
+					}
+				}
+			}
+		}
+
+		ArrayList<Candidate> sorted = new ArrayList<Candidate>(best);
+		Collections.sort(sorted, WORST_FIRST.reversed());
+		ArrayList<Match> longest = new ArrayList<Match>(sorted.size());
+		for (Candidate c : sorted)
+			longest.add(c.match);
+		return longest;
+	}
+
+	/**
+	 * @return number of walks made by the last find, i.e. start cells times directions not pruned
+	 */
+	public long getWalkCount() {
+		return walkCount;
+	}
+
+	/**
+	 * Walks up to reach letters from (row, col) in direction d and offers the words on the way.
+	 */
+	private void walk(Grid grid, int row, int col, int d, int reach, char[] line, int k, PriorityQueue<Candidate> best, HashSet<String> kept) {
+		walkCount++;
+		for (int length = 1; length <= reach; length++) {
+			line[length - 1] = grid.get(row + (length - 1) * WordPuzzle.rowDelta[d], col + (length - 1) * WordPuzzle.colDelta[d]);
+			String val = dictionary.get(line, 0, length);
+			if (val == null)
+				return;		// neither a word nor a prefix
+			//A single letter is only counted once, in the forward direction
+			if (val.equals(WordPuzzle.WORD) && (length > 1 || d == WordPuzzle.forwardDirection))
+				offer(line, length, row, col, d, k, best, kept);
+		}
+	}
+
+	/**
+	 * Keeps the word if it is among the k longest so far. No String is made for a word that is too short.
+	 */
+	private void offer(char[] line, int length, int row, int col, int d, int k, PriorityQueue<Candidate> best, HashSet<String> kept) {
+		if (best.size() == k && length <= best.peek().length)
+			return;
+		String word = new String(line, 0, length);
+		if (!kept.add(word))
+			return;		// found before, and kept
+		if (best.size() == k)
+			kept.remove(best.poll().match.getWord());
+		best.add(new Candidate(new Match(word, row, col, d), length, found++));
+	}
+
+	/**
+	 * First row (or column) whose walks in a direction with this step have at least reach cells.
+	 */
+	private static int from(int delta, int reach) {
+		return delta < 0 ? reach - 1 : 0;
+	}
+
+	/**
+	 * One past the last row (or column) whose walks have at least reach cells, out of count.
+	 */
+	private static int to(int delta, int count, int reach) {
+		return delta > 0 ? count - reach + 1 : count;
+	}
+
+	/**
+	 * A word in the heap with the order it was found in.
+	 */
+	private static class Candidate {
+		Candidate(Match match, int length, long order) {
+			this.match = match;
+			this.length = length;
+			this.order = order;
+		}
+
+		final Match match;
+		final int length;
+		final long order;
+	}
+
+	/** Shortest first, and of the same length the last found first: the head is the word to drop. */
+	private static final Comparator<Candidate> WORST_FIRST = new Comparator<Candidate>() {
+		public int compare(Candidate a, Candidate b) {
+			if (a.length != b.length)
+				return Integer.compare(a.length, b.length);
+			return Long.compare(b.order, a.order);
+		}
+	};
+
+	private final LookupTable<String> dictionary;
+	private final int maxWordLength;
+	private long walkCount;
+	private long found;
+}
@@ -0,0 +1,48 @@
+/**
+ *
+ * @author Gayatri
+ * The read side of a dictionary, which is all the WordPuzzle solvers need.
+ * Implemented by MyHashTable and by ConcurrentHashTable.
+ *
+ */
+
+public interface LookupTable<AnyType> {
+
+	/**
+	 * @param x the key to search for
+	 * @return true if x is a key of the table
+	 */
+	boolean contains(AnyType x);
+
+	/**
+	 * @param key the key whose value is to be found
+	 * @return value corresponding to the key, or null if the key is absent
+	 */
+	AnyType get(AnyType key);
+
+	/**
+	 * Looks up the key spelled by chars[offset .. offset + length), e.g. straight from a
+	 * scan buffer. Tables that can hash and compare it in place override this, so that
+	 * no String is made; by default it is copied into one.
+	 * @param chars the characters
+	 * @param offset index of the first character of the key
+	 * @param length length of the key
+	 * @return true if that key is in the table
+	 */
+	@SuppressWarnings("unchecked")
+	default boolean contains(char[] chars, int offset, int length) {
+		return contains((AnyType) new String(chars, offset, length));
+	}
+
+	/**
+	 * Looks up the key spelled by chars[offset .. offset + length), see contains(char[], int, int).
+	 * @param chars the characters
+	 * @param offset index of the first character of the key
+	 * @param length length of the key
+	 * @return value corresponding to that key, or null if the key is absent
+	 */
+	@SuppressWarnings("unchecked")
+	default AnyType get(char[] chars, int offset, int length) {
+		return get((AnyType) new String(chars, offset, length));
+	}
+}
@@ -0,0 +1,65 @@
+/**
+ *
+ * @author Gayatri
+ * A word found in a grid, with the row and column of its first letter and the
+ * direction it is read in. The elements of WordPuzzle.streamWords.
+ *
+ */
+
+public final class Match {
+
+	/**
+	 * @param word the word found
+	 * @param row row of its first letter
+	 * @param col column of its first letter
+	 * @param direction one of the 8 WordPuzzle directions
+	 */
+	public Match(String word, int row, int col, int direction) {
+		this.word = word;
+		this.row = row;
+		this.col = col;
+		this.direction = direction;
+	}
+
+	public String getWord() {
+		return word;
+	}
+
+	public int getRow() {
+		return row;
+	}
+
+	public int getCol() {
+		return col;
+	}
+
+	public int getDirection() {
+		return direction;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (!(o instanceof Match))
+			return false;
+		Match m = (Match) o;
+		return m.row == row && m.col == col && m.direction == direction && m.word.equals(word);
+	}
+
+	@Override
+	public int hashCode() {
+		return ((word.hashCode() * 31 + row) * 31 + col) * 31 + direction;
+	}
+
+	/**
+	 * @return e.g. "apple at (3, 7) downward"
+	 */
+	@Override
+	public String toString() {
+		return word + " at (" + row + ", " + col + ") " + WordPuzzle.directionNames[direction];
+	}
+
+	private final String word;
+	private final int row;
+	private final int col;
+	private final int direction;
+}
@@ -0,0 +1,22 @@
+/**
+ *
+ * @author Gayatri
+ * Receives the words of a grid one at a time, as a solver finds them, together with
+ * where they are: the row and column of the first letter and the direction they are
+ * read in (one of the 8 WordPuzzle directions). A visitor can print or count the words
+ * without any list of them being kept, and it stops the search by returning false.
+ *
+ */
+
+@FunctionalInterface
+public interface MatchVisitor {
+
+	/**
+	 * @param word the word found
+	 * @param row row of its first letter
+	 * @param col column of its first letter
+	 * @param direction direction it is read in, WordPuzzle.forwardDirection for a single letter
+	 * @return true to go on searching, false to stop
+	 */
+	boolean visit(String word, int row, int col, int direction);
+}
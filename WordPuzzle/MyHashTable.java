@@ -1,16 +1,58 @@
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
 
 
 /**
- * 
+ *
  * @author Gayatri
  * Linear Probing HashTable
  * Adapted from Author Mark Weiss' QuadraticProbingHashTable class
  *
+ * The table has two layouts. The default one keeps a HashEntry object per key.
+ * The COMPACT layout is meant for large String dictionaries: keys are copied into
+ * one shared arena and each slot is just an arena offset and a one-byte
+ * kind that indexes a small pool of distinct values (e.g. "w" and "p").
+ *
+ * With the ROBIN_HOOD option insertion keeps every cluster ordered by home slot,
+ * so a lookup can stop as soon as it has probed further than the resident key did,
+ * and removal shifts the rest of the cluster back instead of leaving a hole.
+ * Probe lengths are capped at MAX_PROBE, which lets the table run at 0.8-0.9 load.
+ *
+ * A table built by a Builder, or made by presized( ), is sized once for all its keys
+ * and does not rehash while they are inserted.
+ *
+ * With the INCREMENTAL option a rehash does not stop the caller for a full copy: the
+ * old table is kept next to the new one, every put moves the entries of the next few
+ * old slots, and lookups look in both tables until the move is done.
+ *
+ * setStatsEnabled( true ) starts counting probe lengths of lookups and the number and
+ * time of rehashes, and getStats( ) reports them with the current cluster sizes. Every
+ * rehash is also committed as a RehashEvent to Java Flight Recorder.
+ *
  */
 
-public class MyHashTable<AnyType> {
-	
+public class MyHashTable<AnyType> implements LookupTable<AnyType> {
+
+    /**
+     * Option that stores CharSequence keys in a packed arena instead of HashEntry objects.
+     * At most 255 distinct values may be stored in a COMPACT table.
+     */
+    public static final int COMPACT = 1;
+
+    /**
+     * Option that uses Robin Hood insertion and backward-shift deletion.
+     */
+    public static final int ROBIN_HOOD = 2;
+
+    /**
+     * Option that spreads each rehash over the puts that follow it. Only puts
+     * move entries, so a table no one writes to can still be read by many threads.
+     */
+    public static final int INCREMENTAL = 4;
+
 	 /**
      * Construct the hash table.
      */
@@ -25,124 +67,504 @@ public class MyHashTable<AnyType> {
      */
     public MyHashTable( int size )
     {
+        this( size, 0 );
+    }
+
+    /**
+     * Construct the hash table.
+     * @param size the approximate initial size.
+     * @param options 0 or any of COMPACT, ROBIN_HOOD and INCREMENTAL.
+     */
+    public MyHashTable( int size, int options )
+    {
+        this( size, options, DEFAULT_MAX_LOAD );
+    }
+
+    /**
+     * Construct the hash table.
+     * @param size the approximate initial size.
+     * @param options 0 or any of COMPACT, ROBIN_HOOD and INCREMENTAL.
+     * @param maxLoad the load factor above which the table is doubled.
+     */
+    public MyHashTable( int size, int options, double maxLoad )
+    {
+        if( !( maxLoad > 0 && maxLoad < 1 ) )
+            throw new IllegalArgumentException( "maxLoad must be between 0 and 1: " + maxLoad );
+        compact = ( options & COMPACT ) != 0;
+        robinHood = ( options & ROBIN_HOOD ) != 0;
+        incremental = ( options & INCREMENTAL ) != 0;
+        this.maxLoad = maxLoad;
+            // Enough slots per put to finish a move before the new table fills up
+        migrateSlots = Math.max( MIGRATE_SLOTS, (int) Math.ceil( 1 / maxLoad ) + 1 );
         allocateArray( size );
         doClear( );
     }
 
+    /**
+     * Construct a hash table that holds expectedSize keys without a rehash.
+     * @param expectedSize the number of keys that will be inserted.
+     * @param options 0 or any of COMPACT, ROBIN_HOOD and INCREMENTAL.
+     * @param maxLoad the load factor above which the table is doubled.
+     * @return the empty table.
+     */
+    public static <AnyType> MyHashTable<AnyType> presized( int expectedSize, int options, double maxLoad )
+    {
+        if( expectedSize < 0 )
+            throw new IllegalArgumentException( "expectedSize must not be negative: " + expectedSize );
+            // threshold = (int) ( capacity * maxLoad ) must reach expectedSize
+        long size = (long) Math.ceil( expectedSize / maxLoad ) + 1;
+        if( size > Integer.MAX_VALUE - 64 )
+            throw new IllegalArgumentException( "Too many keys for one table: " + expectedSize );
+        return new MyHashTable<>( (int) size, options, maxLoad );
+    }
+
     /**
      * Insert into the hash table. If the item is
      * already present, do nothing.
      * @param x the item to insert.
      */
     public boolean insert( AnyType x )
-    {       
-        int currentPos = findPos( x );
-        
-        if( array[ currentPos ] == null )
-            ++occupied;
-        array[ currentPos ] = new HashEntry<>(x);
-        
-        theSize++;
-        
-            // Rehash
-        if( occupied > array.length / 2 )
-            rehash( );
-        
-        return true;
+    {
+        return put( x, null );
     }
-    
+
     /**
      * Insert into the hash table.
      * @param key Key of the Hash Table
      * @param value Value corresponding to the key in HashTable
-     * 
+     *
      */
-    
+
     public boolean put( AnyType key , AnyType value)
-    {       
-        int currentPos = findPos( key );	//TODO: test this
-        
-        if( array[ currentPos ] == null )
-            ++occupied;
-        array[ currentPos ] = new HashEntry<>(key, value);
-        
+    {
+        if( oldArray != null )
+            migrate( migrateSlots );
+
+        int hash = hashOf( key );
+        int currentPos = findPos( key, hash );
+
+        if( currentPos >= 0 )
+        {
+            array.setValue( currentPos, value );
+            return true;
+        }
+        if( oldArray != null )
+        {
+            int oldPos = findOld( key, hash );
+            if( oldPos >= 0 )
+            {
+                oldArray.setValue( oldPos, value );    // Moved later with its new value
+                return true;
+            }
+        }
+
+        currentPos = -currentPos - 1;
+        if( robinHood )
+        {
+            int probe = distance( myhash( hash ), currentPos );
+            if( !makeRoom( currentPos, probe ) )
+            {
+                rehash( );        // Some probe would pass MAX_PROBE
+                return put( key, value );
+            }
+            probes[ currentPos ] = (byte) probe;
+        }
+        array.store( currentPos, hash, key, value );
+        ++occupied;
         theSize++;
-        
+
             // Rehash
-        if( occupied > array.length / 2 )
+        if( occupied > threshold )
             rehash( );
-        
+
         return true;
     }
-    
+
     /**
      * Return the value to which the key corresponds to in the Hashtable
      * @param key The key whose value is to be found
      * @return value corresponding to the key
      */
     public AnyType get(AnyType key) {
-    	if (contains(key)) {
-    		int currentPos = findPos( key );
-    			return ((array[currentPos] != null) ? array[currentPos].value : null); 
-    	}
-    	else {
-    		return null;
-    	}
+    	return valueAt( locate( key, null, 0, 0, hashOf( key ) ) );
     }
 
     /**
-     * Expand the hash table.
+     * Look up the key spelled by chars[ offset .. offset + length ) with
+     * one probe, hashing and comparing the characters in place.
+     * Finds String keys, and any CharSequence key of a COMPACT table.
+     * @param chars the characters.
+     * @param offset index of the first character of the key.
+     * @param length length of the key.
+     * @return true if that key is in the table.
      */
-    private void rehash( )
+    public boolean contains( char [ ] chars, int offset, int length )
     {
-        HashEntry<AnyType> [ ] oldArray = array;
+        return locate( null, chars, offset, length, hashOf( chars, offset, length ) ) != -1;
+    }
 
-            // Create a new double-sized, empty table
-        allocateArray( 2 * oldArray.length );
-        occupied = 0;
-        theSize = 0;
+    /**
+     * Look up the key spelled by chars[ offset .. offset + length ) with
+     * one probe, see contains( char [ ], int, int ).
+     * @param chars the characters.
+     * @param offset index of the first character of the key.
+     * @param length length of the key.
+     * @return value corresponding to that key, or null if it is absent.
+     */
+    public AnyType get( char [ ] chars, int offset, int length )
+    {
+        return valueAt( locate( null, chars, offset, length, hashOf( chars, offset, length ) ) );
+    }
+
+    /**
+     * Find a key, given as x or as a char slice when chars is not null, in
+     * the current table and, during an INCREMENTAL move, the old one.
+     * Counts the probe if stats are enabled.
+     * @return the position in the current table, -1 if absent,
+     *         or -2 - the position in the old table.
+     */
+    private int locate( Object x, char [ ] chars, int offset, int length, int hash )
+    {
+        int currentPos = chars == null ? findPos( x, hash ) : findSlice( array, probes, chars, offset, length, hash );
+        int where = currentPos >= 0 ? currentPos : -1;
+        Counters c = counters;
+        int probe = c == null ? 0 : distance( myhash( hash ), currentPos >= 0 ? currentPos : -currentPos - 1 );
 
-            // Copy table over
-        for( HashEntry<AnyType> entry : oldArray )
-            if( entry != null) {
-            	put(entry.key, entry.value);
+        if( currentPos < 0 && oldArray != null )
+        {
+            int oldPos = chars == null ? findOld( x, hash ) : findSlice( oldArray, oldProbes, chars, offset, length, hash );
+            if( oldPos >= migrated )
+            {
+                where = -2 - oldPos;
+                probe = Math.floorMod( oldPos - Math.floorMod( hash, oldArray.length( ) ), oldArray.length( ) );
             }
+        }
+        if( c != null )
+            c.probed( where != -1, probe );
+        return where;
+    }
+
+    private AnyType valueAt( int where )
+    {
+        if( where >= 0 )
+            return array.valueAt( where );
+        return where == -1 ? null : oldArray.valueAt( -2 - where );
+    }
+
+    /**
+     * Linear probing for a char slice in either table.
+     * @return the position of the key, or a negative number if it is absent.
+     */
+    private int findSlice( Slots<AnyType> slots, byte [ ] probeLengths, char [ ] chars, int offset, int length, int hash )
+    {
+        int size = slots.length( );
+        int currentPos = Math.floorMod( hash, size );
+        int probe = 0;
+
+        while( !slots.isEmpty( currentPos ) )
+        {
+            if( robinHood && probeLengths[ currentPos ] < probe )
+                break;
+            if( slots.matches( currentPos, hash, chars, offset, length ) )
+                return currentPos;
+
+            if( ++currentPos == size )
+                currentPos = 0;
+            probe++;
+        }
+
+        return -currentPos - 1;
+    }
+
+    /**
+     * Expand the hash table. An INCREMENTAL table only allocates the new
+     * table here, after finishing any move still in progress.
+     */
+    private void rehash( )
+    {
+        RehashEvent event = new RehashEvent( );
+        event.begin( );
+        long start = System.nanoTime( );
+
+        Slots<AnyType> previous = array;
+        int attempts = 0;
+        if( incremental )
+        {
+            if( oldArray != null )
+                attempts += migrate( Integer.MAX_VALUE );
+            oldArray = array;
+            oldProbes = probes;
+            migrated = 0;
+            allocateArray( 2 * oldArray.length( ) );
+            attempts++;
+            occupied = 0;
+        }
+        else
+            attempts = copyAll( 2 * array.length( ) );
+
+        Counters c = counters;
+        if( c != null )
+            c.rehashed( System.nanoTime( ) - start );
+        event.end( );
+        if( event.shouldCommit( ) )
+        {
+            event.oldCapacity = previous.length( );
+            event.newCapacity = array.length( );
+            event.size = theSize;
+            event.attempts = attempts;
+            event.robinHood = robinHood;
+            event.compact = compact;
+            event.incremental = incremental;
+            event.commit( );
+        }
    }
 
     /**
-     * Method that performs quadratic probing resolution.
+     * Create a new empty table and copy every entry over, including the
+     * entries an INCREMENTAL move has not reached yet.
+     * Only Robin Hood can fail, if a probe would pass MAX_PROBE; then the
+     * size is doubled again.
+     * @param newSize the approximate size of the new table.
+     * @return the number of tables allocated.
+     */
+    private int copyAll( int newSize )
+    {
+        Slots<AnyType> current = array;
+        Slots<AnyType> old = oldArray;
+        int attempts = 0;
+
+        boolean copied = false;
+        while( !copied )
+        {
+            allocateArray( newSize );
+            attempts++;
+            copied = true;
+            for( int i = 0; i < current.length( ) && copied; i++ )
+                if( !current.isEmpty( i ) )
+                    copied = place( current, i );
+            for( int i = migrated; old != null && i < old.length( ) && copied; i++ )
+                if( !old.isEmpty( i ) )
+                    copied = place( old, i );
+            newSize *= 2;
+        }
+        oldArray = null;
+        oldProbes = null;
+        occupied = theSize;
+        return attempts;
+    }
+
+    /**
+     * INCREMENTAL: move the entries of the next old slots into the current
+     * table. Moved slots are not cleared, so no old probe chain is broken;
+     * findOld ignores what it finds below migrated.
+     * @param slots the number of old slots to move.
+     * @return the number of tables allocated if the current one had to be rebuilt.
+     */
+    private int migrate( int slots )
+    {
+        int end = (int) Math.min( (long) migrated + slots, oldArray.length( ) );
+        for( ; migrated < end; migrated++ )
+            if( !oldArray.isEmpty( migrated ) )
+            {
+                if( !place( oldArray, migrated ) )
+                    return copyAll( 2 * array.length( ) );    // Some probe would pass MAX_PROBE
+                occupied++;
+            }
+
+        if( migrated == oldArray.length( ) )
+        {
+            oldArray = null;
+            oldProbes = null;
+        }
+        return 0;
+    }
+
+    /**
+     * Finish an INCREMENTAL rehash in progress, so lookups only search one
+     * table again, e.g. once a dictionary is loaded. Does nothing otherwise.
+     */
+    public void finishRehash( )
+    {
+        if( oldArray != null )
+            migrate( Integer.MAX_VALUE );
+    }
+
+    /**
+     * INCREMENTAL: find a key in the part of the old table not moved yet.
+     * @return the position of x in oldArray, or -1.
+     */
+    private int findOld( Object x, int hash )
+    {
+        int length = oldArray.length( );
+        int currentPos = Math.floorMod( hash, length );
+        int probe = 0;
+
+        while( !oldArray.isEmpty( currentPos ) )
+        {
+            if( robinHood && oldProbes[ currentPos ] < probe )
+                break;
+            if( oldArray.matches( currentPos, hash, x ) )
+                return currentPos >= migrated ? currentPos : -1;
+
+            if( ++currentPos == length )
+                currentPos = 0;
+            probe++;
+        }
+        return -1;
+    }
+
+    /**
+     * Copy an entry of another table into this one during a rehash.
+     * Keys are unique so no key comparison is needed.
+     * @return false if the entry did not fit within MAX_PROBE.
+     */
+    private boolean place( Slots<AnyType> from, int i )
+    {
+        int currentPos = myhash( from.hashAt( i ) );
+        int probe = 0;
+
+        while( !array.isEmpty( currentPos ) && ( !robinHood || probes[ currentPos ] >= probe ) )
+        {
+            currentPos = next( currentPos );
+            probe++;
+        }
+        if( robinHood )
+        {
+            if( !makeRoom( currentPos, probe ) )
+                return false;
+            probes[ currentPos ] = (byte) probe;
+        }
+        array.copyFrom( from, i, currentPos );
+        return true;
+    }
+
+    /**
+     * Method that performs linear probing resolution.
+     * In Robin Hood mode the search stops at the first resident that is
+     * closer to its home slot than x would be.
      * @param x the item to search for.
-     * @return the position where the search terminates.
+     * @param hash the hash code of x.
+     * @return the position of x, or -( insertion point ) - 1 if x is absent.
+     */
+    private int findPos( Object x, int hash )
+    {
+        int currentPos = myhash( hash );
+        int probe = 0;
+
+        while( !array.isEmpty( currentPos ) )
+        {
+            if( robinHood && probes[ currentPos ] < probe )
+                break;
+            if( array.matches( currentPos, hash, x ) )
+                return currentPos;
+
+            currentPos = next( currentPos );  // Linear probing.
+            probe++;
+        }
+
+        return -currentPos - 1;
+    }
+
+    /**
+     * Robin Hood insertion: shift the run that starts at pos one slot forward
+     * so that a key with the given probe length can take pos.
+     * @return false, leaving the table untouched, if some probe would reach MAX_PROBE.
      */
-    private int findPos( AnyType x )
+    private boolean makeRoom( int pos, int probe )
     {
-        int offset = 1;
-        int currentPos = myhash( x );
-        
-        while( array[ currentPos ] != null &&
-                !array[ currentPos ].key.equals( x ) )
+        if( probe >= MAX_PROBE )
+            return false;
+
+        int end = pos;
+        for( ; !array.isEmpty( end ); end = next( end ) )
+            if( probes[ end ] + 1 >= MAX_PROBE )
+                return false;
+
+        for( ; end != pos; end = prev( end ) )
         {
-            currentPos += offset;  // Linear probing.
-            if( currentPos >= array.length )
-                currentPos -= array.length;
+            moveSlot( prev( end ), end );
+            probes[ end ]++;
         }
-        
-        return currentPos;
+        return true;
     }
 
     /**
      * Remove from the hash table.
+     * The rest of the cluster is shifted back over the hole, so no
+     * probe chain is broken and no tombstone is left behind.
      * @param x the item to remove.
      * @return true if item removed
      */
     public boolean remove( AnyType x )
     {
-        int currentPos = findPos( x );
-            array[ currentPos ] = null;
-            theSize--;
-            return true;
+        finishRehash( );    // Clearing an old slot would break its probe chain
+        int currentPos = findPos( x, hashOf( x ) );
+        if( currentPos < 0 )
+            return false;
+
+        array.clear( currentPos );
+        closeGap( currentPos );
+        occupied--;
+        theSize--;
+        return true;
+    }
+
+    /**
+     * Backward-shift deletion. Robin Hood moves every following key that is
+     * not in its home slot back by one. Plain linear probing moves a key back
+     * into the hole unless its home slot lies cyclically in ( hole, j ].
+     * @param hole the slot that was just cleared.
+     */
+    private void closeGap( int hole )
+    {
+        for( int j = next( hole ); !array.isEmpty( j ); j = next( j ) )
+        {
+            boolean canMove;
+            if( robinHood )
+            {
+                if( probes[ j ] == 0 )
+                    return;
+                canMove = true;
+            }
+            else
+            {
+                int home = myhash( array.hashAt( j ) );
+                canMove = hole <= j ? ( home <= hole || home > j ) : ( home <= hole && home > j );
+            }
+
+            if( canMove )
+            {
+                moveSlot( j, hole );
+                if( robinHood )
+                    probes[ hole ]--;
+                array.clear( j );
+                hole = j;
+            }
+        }
+    }
+
+    private void moveSlot( int from, int to )
+    {
+        array.copyFrom( array, from, to );
+        if( robinHood )
+            probes[ to ] = probes[ from ];
+    }
+
+    private int next( int pos )
+    {
+        return ++pos == array.length( ) ? 0 : pos;
     }
-    
+
+    private int prev( int pos )
+    {
+        return pos == 0 ? array.length( ) - 1 : pos - 1;
+    }
+
+    private int distance( int home, int pos )
+    {
+        return pos >= home ? pos - home : pos + array.length( ) - home;
+    }
+
     /**
      * Get current size.
      * @return the size.
@@ -151,14 +573,67 @@ public class MyHashTable<AnyType> {
     {
         return theSize;
     }
-    
+
     /**
      * Get length of internal table.
      * @return the size.
      */
     public int capacity( )
     {
-        return array.length;
+        return array.length( );
+    }
+
+    /**
+     * Start or stop counting lookups and rehashes. Starting clears the counts.
+     * While counting, lookups from several threads are counted safely.
+     * @param enabled true to count.
+     */
+    public void setStatsEnabled( boolean enabled )
+    {
+        counters = enabled ? new Counters( ) : null;
+    }
+
+    /**
+     * Report the counts since setStatsEnabled( true ), and the clusters
+     * (runs of occupied slots) as they are now. Cost is linear in the capacity.
+     * @return the statistics, or null if they are not enabled.
+     */
+    public Stats getStats( )
+    {
+        Counters c = counters;
+        if( c == null )
+            return null;
+
+        long [ ] clusters = new long[ HISTOGRAM_LENGTH ];
+        int maxCluster = 0;
+        int length = array.length( );
+        int first = 0;                        // Start after an empty slot, so no cluster wraps
+        while( first < length && !array.isEmpty( first ) )
+            first++;
+        int run = 0;
+        for( int i = 1; i <= length && first < length; i++ )
+        {
+            int pos = ( first + i ) % length;
+            if( !array.isEmpty( pos ) )
+                run++;
+            else if( run > 0 )
+            {
+                clusters[ Math.min( run, HISTOGRAM_LENGTH - 1 ) ]++;
+                maxCluster = Math.max( maxCluster, run );
+                run = 0;
+            }
+        }
+
+        return new Stats( theSize, length, snapshot( c.hitProbes ), snapshot( c.missProbes ), clusters, maxCluster,
+                          c.rehashes.sum( ), c.rehashNanos.sum( ), c.maxRehashNanos );
+    }
+
+    private static long [ ] snapshot( AtomicLongArray counts )
+    {
+        long [ ] copy = new long[ counts.length( ) ];
+        for( int i = 0; i < copy.length; i++ )
+            copy[ i ] = counts.get( i );
+        return copy;
     }
 
     /**
@@ -168,22 +643,11 @@ public class MyHashTable<AnyType> {
      */
     public boolean contains( AnyType x )
     {
-        int currentPos = findPos( x );
-        if (array[currentPos] != null && array[currentPos].key.equals(x))
-        	return true;		//TODO : Test this method
-        else
-        	return false;
-        
+        return locate( x, null, 0, 0, hashOf( x ) ) != -1;
     }
-    
+
     public boolean contains(AnyType k, AnyType val) {
-    	int currentPos = findPos( k );
-        if (array[currentPos] != null && array[currentPos].key.equals(k)) {
-         		return true;		//TODO : Test this method
-        }
-        else
-        	return false;
-    	
+    	return contains( k );
     }
 
     /**
@@ -196,33 +660,70 @@ public class MyHashTable<AnyType> {
 
     private void doClear( )
     {
-    	//TODO: Why doesn't this set theSize to 0?
+        oldArray = null;
+        oldProbes = null;
         occupied = 0;
-        for( int i = 0; i < array.length; i++ )
-            array[ i ] = null;
+        theSize = 0;
+        if( compact )
+        {
+            // The arena only grows, so dropping its keys takes a new one
+            arena = new KeyArena<>( );
+            array = new ArenaSlots<>( array.length( ), arena );
+            return;
+        }
+        for( int i = 0; i < array.length( ); i++ )
+            array.clear( i );
     }
-    
-    private int myhash( AnyType x )
+
+    /**
+     * Hash code of a key. COMPACT keys are hashed like String.hashCode
+     * so that any CharSequence finds the String stored under the same text.
+     */
+    private int hashOf( Object x )
     {
-        int hashVal = x.hashCode( );
+        if( !compact || x instanceof String )
+            return x.hashCode( );
+        if( !( x instanceof CharSequence ) )
+            throw new IllegalArgumentException( "COMPACT tables only hold CharSequence keys" );
 
-        hashVal %= array.length;
+        CharSequence s = (CharSequence) x;
+        int hashVal = 0;
+        for( int i = 0; i < s.length( ); i++ )
+            hashVal = 31 * hashVal + s.charAt( i );
+        return hashVal;
+    }
+
+    /**
+     * String.hashCode of a char slice, so it finds the key stored under the same text.
+     */
+    private static int hashOf( char [ ] chars, int offset, int length )
+    {
+        int hashVal = 0;
+        for( int i = offset; i < offset + length; i++ )
+            hashVal = 31 * hashVal + chars[ i ];
+        return hashVal;
+    }
+
+    private int myhash( int hashVal )
+    {
+        hashVal %= array.length( );
         if( hashVal < 0 )
-            hashVal += array.length;
+            hashVal += array.length( );
 
         return hashVal;
     }
-    
+
     private static class HashEntry<AnyType>
     {
     	public AnyType  key;   // the key
         public AnyType  value;   // the value - either "word" or "prefix"
-        
+        public int      hash;    // cached hash code of the key
+
         public HashEntry( AnyType e )
         {
         	key = e;
         }
-        
+
         public HashEntry( AnyType k , AnyType v )
         {
         	value = v;
@@ -230,11 +731,555 @@ public class MyHashTable<AnyType> {
         }
     }
 
-    private static final int DEFAULT_TABLE_SIZE = 101;
+    /**
+     * Storage behind the probing code. A slot is addressed by its index and is
+     * either empty or holds one key, its hash and its value.
+     */
+    private static abstract class Slots<AnyType>
+    {
+        abstract int length( );
+        abstract boolean isEmpty( int pos );
+        abstract int hashAt( int pos );
+        abstract boolean matches( int pos, int hash, Object key );
+        abstract boolean matches( int pos, int hash, char [ ] chars, int offset, int length );
+        abstract AnyType valueAt( int pos );
+        abstract void store( int pos, int hash, AnyType key, AnyType value );
+        abstract void setValue( int pos, AnyType value );
+        abstract void copyFrom( Slots<AnyType> other, int from, int to );
+        abstract void clear( int pos );
+    }
+
+    /**
+     * The original layout: one HashEntry object per occupied slot.
+     */
+    private static class EntrySlots<AnyType> extends Slots<AnyType>
+    {
+        EntrySlots( int length )
+        {
+            entries = new HashEntry[ length ];
+        }
+
+        int length( )                { return entries.length; }
+        boolean isEmpty( int pos )   { return entries[ pos ] == null; }
+        int hashAt( int pos )        { return entries[ pos ].hash; }
+        AnyType valueAt( int pos )   { return entries[ pos ] == null ? null : entries[ pos ].value; }
+        void clear( int pos )        { entries[ pos ] = null; }
+
+        boolean matches( int pos, int hash, Object key )
+        {
+            return entries[ pos ].hash == hash && entries[ pos ].key.equals( key );
+        }
+
+        boolean matches( int pos, int hash, char [ ] chars, int offset, int length )
+        {
+            HashEntry<AnyType> entry = entries[ pos ];
+            if( entry.hash != hash || !( entry.key instanceof CharSequence ) )
+                return false;
+            CharSequence key = (CharSequence) entry.key;
+            if( key.length( ) != length )
+                return false;
+            for( int i = 0; i < length; i++ )
+                if( key.charAt( i ) != chars[ offset + i ] )
+                    return false;
+            return true;
+        }
+
+        void store( int pos, int hash, AnyType key, AnyType value )
+        {
+            entries[ pos ] = new HashEntry<>( key, value );
+            entries[ pos ].hash = hash;
+        }
+
+        void setValue( int pos, AnyType value )
+        {
+            entries[ pos ].value = value;
+        }
+
+        void copyFrom( Slots<AnyType> other, int from, int to )
+        {
+            entries[ to ] = ( (EntrySlots<AnyType>) other ).entries[ from ];
+        }
+
+        private HashEntry<AnyType> [ ] entries;
+    }
+
+    /**
+     * The COMPACT layout: parallel primitive arrays over a shared KeyArena.
+     * keys[ pos ] is the arena offset of the key plus one, so 0 means empty.
+     * Hashes are not kept per slot; they are recomputed from the arena on rehash.
+     */
+    private static class ArenaSlots<AnyType> extends Slots<AnyType>
+    {
+        ArenaSlots( int length, KeyArena<AnyType> arena )
+        {
+            keys = new int[ length ];
+            kinds = new byte[ length ];
+            this.arena = arena;
+        }
+
+        int length( )                { return keys.length; }
+        boolean isEmpty( int pos )   { return keys[ pos ] == 0; }
+        int hashAt( int pos )        { return arena.hash( keys[ pos ] - 1 ); }
+        AnyType valueAt( int pos )   { return keys[ pos ] == 0 ? null : arena.value( kinds[ pos ] ); }
+        void clear( int pos )        { keys[ pos ] = 0; }
+
+        boolean matches( int pos, int hash, Object key )
+        {
+            return arena.matches( keys[ pos ] - 1, (CharSequence) key );
+        }
+
+        boolean matches( int pos, int hash, char [ ] chars, int offset, int length )
+        {
+            return arena.matches( keys[ pos ] - 1, chars, offset, length );
+        }
+
+        void store( int pos, int hash, AnyType key, AnyType value )
+        {
+            keys[ pos ] = arena.add( (CharSequence) key ) + 1;
+            kinds[ pos ] = arena.kind( value );
+        }
+
+        void setValue( int pos, AnyType value )
+        {
+            kinds[ pos ] = arena.kind( value );
+        }
+
+        void copyFrom( Slots<AnyType> other, int from, int to )
+        {
+            ArenaSlots<AnyType> o = (ArenaSlots<AnyType>) other;
+            keys[ to ] = o.keys[ from ];
+            kinds[ to ] = o.kinds[ from ];
+        }
+
+        private int [ ] keys;
+        private byte [ ] kinds;
+        private KeyArena<AnyType> arena;
+    }
+
+    /**
+     * Append-only key storage for COMPACT tables, shared by every table generation.
+     * Each key is stored as a two-unit length followed by its chars. Units are bytes
+     * while every key is Latin-1 and the arena switches to chars on the first key that
+     * is not. Space of removed keys is not reclaimed.
+     */
+    private static class KeyArena<AnyType>
+    {
+        int add( CharSequence key )
+        {
+            int len = key.length( );
+            if( len > Character.MAX_VALUE )
+                throw new IllegalArgumentException( "COMPACT keys are limited to 65535 chars" );
+            if( bytes != null )
+                for( int i = 0; i < len; i++ )
+                    if( key.charAt( i ) > 0xff )
+                    {
+                        chars = new char[ capacity( ) ];
+                        for( int j = 0; j < top; j++ )
+                            chars[ j ] = (char) ( bytes[ j ] & 0xff );
+                        bytes = null;
+                        break;
+                    }
+            if( top + len + 2 > capacity( ) )
+                grow( Math.max( capacity( ) + ( capacity( ) >> 1 ), top + len + 2 ) );
+
+            int start = top;
+            setUnit( top++, len >>> 8 );
+            setUnit( top++, len & 0xff );
+            for( int i = 0; i < len; i++ )
+                setUnit( top++, key.charAt( i ) );
+            return start;
+        }
 
-    private HashEntry<AnyType> [ ] array; // The array of elements
+        boolean matches( int start, CharSequence key )
+        {
+            int len = length( start );
+            if( len != key.length( ) )
+                return false;
+            start += 2;
+            for( int i = 0; i < len; i++ )
+                if( unit( start + i ) != key.charAt( i ) )
+                    return false;
+            return true;
+        }
+
+        boolean matches( int start, char [ ] chars, int offset, int length )
+        {
+            if( length( start ) != length )
+                return false;
+            start += 2;
+            for( int i = 0; i < length; i++ )
+                if( unit( start + i ) != chars[ offset + i ] )
+                    return false;
+            return true;
+        }
+
+        int hash( int start )
+        {
+            int hashVal = 0;
+            int end = start + 2 + length( start );
+            for( int i = start + 2; i < end; i++ )
+                hashVal = 31 * hashVal + unit( i );
+            return hashVal;
+        }
+
+        private int length( int start )
+        {
+            return unit( start ) << 8 | unit( start + 1 );
+        }
+
+        private int unit( int i )
+        {
+            return bytes != null ? bytes[ i ] & 0xff : chars[ i ];
+        }
+
+        private void setUnit( int i, int c )
+        {
+            if( bytes != null )
+                bytes[ i ] = (byte) c;
+            else
+                chars[ i ] = (char) c;
+        }
+
+        private int capacity( )
+        {
+            return bytes != null ? bytes.length : chars.length;
+        }
+
+        /**
+         * Make room for at least units more units without growing.
+         */
+        void reserve( int units )
+        {
+            if( top + (long) units > capacity( ) )
+                grow( (int) Math.min( (long) top + units, Integer.MAX_VALUE - 8 ) );
+        }
+
+        private void grow( int newCapacity )
+        {
+            if( bytes != null )
+                bytes = Arrays.copyOf( bytes, newCapacity );
+            else
+                chars = Arrays.copyOf( chars, newCapacity );
+        }
+
+        /**
+         * Index of a value in the pool, adding it if it is new. 0 stands for null.
+         */
+        byte kind( AnyType value )
+        {
+            if( value == null )
+                return 0;
+            for( int i = 0; i < valueCount; i++ )
+                if( values[ i ].equals( value ) )
+                    return (byte) ( i + 1 );
+            if( valueCount == values.length )
+                throw new IllegalStateException( "COMPACT tables hold at most 255 distinct values" );
+            values[ valueCount++ ] = value;
+            return (byte) valueCount;
+        }
+
+        AnyType value( byte kind )
+        {
+            return kind == 0 ? null : values[ ( kind & 0xff ) - 1 ];
+        }
+
+        private byte [ ] bytes = new byte[ 1024 ];   // Latin-1 units, or null
+        private char [ ] chars;                      // Units once a wider key arrives
+        private int top;
+        @SuppressWarnings( "unchecked" )
+        private AnyType [ ] values = (AnyType []) new Object[ 255 ];
+        private int valueCount;
+    }
+
+    /**
+     * Collects keys and values, then builds a table sized once for all of
+     * them. A COMPACT table also gets its key arena sized once, for the
+     * total length of the keys, instead of growing it as keys arrive.
+     *
+     * Until build( ) the keys and values are held in two lists as well, so a
+     * bulk load briefly takes more memory than the table itself. When the
+     * number of keys is known up front, a builder constructed with an
+     * expected size puts every key straight into a presized table instead.
+     */
+    public static class Builder<AnyType>
+    {
+        /**
+         * Construct a builder.
+         * @param options 0 or any of COMPACT, ROBIN_HOOD and INCREMENTAL.
+         * @param maxLoad the load factor of the table.
+         */
+        public Builder( int options, double maxLoad )
+        {
+            if( !( maxLoad > 0 && maxLoad < 1 ) )
+                throw new IllegalArgumentException( "maxLoad must be between 0 and 1: " + maxLoad );
+            this.options = options;
+            this.maxLoad = maxLoad;
+        }
+
+        /**
+         * Construct a builder for the default load factor.
+         * @param options 0 or any of COMPACT, ROBIN_HOOD and INCREMENTAL.
+         */
+        public Builder( int options )
+        {
+            this( options, DEFAULT_MAX_LOAD );
+        }
+
+        /**
+         * Construct a builder that puts the keys straight into a table
+         * presized for expectedSize keys, without holding them in lists.
+         * Its build( ) can only be called once.
+         * @param options 0 or any of COMPACT, ROBIN_HOOD and INCREMENTAL.
+         * @param maxLoad the load factor of the table.
+         * @param expectedSize the number of keys that will be put.
+         */
+        public Builder( int options, double maxLoad, int expectedSize )
+        {
+            this( options, maxLoad );
+            table = presized( expectedSize, options, maxLoad );
+            keys = null;
+            values = null;
+        }
+
+        /**
+         * Add a key. A later value of the same key replaces an earlier one.
+         * @param key the key.
+         * @param value its value.
+         * @return this builder.
+         */
+        public Builder<AnyType> put( AnyType key, AnyType value )
+        {
+            if( keys == null )
+                direct( ).put( key, value );
+            else
+            {
+                keys.add( key );
+                values.add( value );
+            }
+            return this;
+        }
+
+        /**
+         * Add keys that all have the same value.
+         * @param newKeys the keys.
+         * @param value their value, e.g. null as insert( ) stores.
+         * @return this builder.
+         */
+        public Builder<AnyType> putAll( Collection<? extends AnyType> newKeys, AnyType value )
+        {
+            if( keys == null )
+            {
+                MyHashTable<AnyType> target = direct( );
+                if( target.compact )
+                    target.arena.reserve( arenaUnits( newKeys ) );
+                for( AnyType key : newKeys )
+                    target.put( key, value );
+                return this;
+            }
+            keys.ensureCapacity( keys.size( ) + newKeys.size( ) );
+            values.ensureCapacity( values.size( ) + newKeys.size( ) );
+            for( AnyType key : newKeys )
+            {
+                keys.add( key );
+                values.add( value );
+            }
+            return this;
+        }
+
+        /**
+         * Build the table. The builder can be used again afterwards, unless
+         * it was constructed with an expected size.
+         * @return a table holding every key added.
+         * @throws IllegalStateException if the table of a builder with an
+         *         expected size was already built.
+         */
+        public MyHashTable<AnyType> build( )
+        {
+            if( keys == null )
+            {
+                MyHashTable<AnyType> built = direct( );
+                table = null;
+                return built;
+            }
+            MyHashTable<AnyType> table = presized( keys.size( ), options, maxLoad );
+            if( table.compact )
+                table.arena.reserve( arenaUnits( keys ) );
+            for( int i = 0; i < keys.size( ); i++ )
+                table.put( keys.get( i ), values.get( i ) );
+            return table;
+        }
+
+        /**
+         * The table of a builder with an expected size.
+         */
+        private MyHashTable<AnyType> direct( )
+        {
+            if( table == null )
+                throw new IllegalStateException( "This builder's table was already built" );
+            return table;
+        }
+
+        /**
+         * Arena units of the keys: their characters plus a two unit header each.
+         */
+        private static int arenaUnits( Collection<?> keys )
+        {
+            long units = 0;
+            for( Object key : keys )
+                if( key instanceof CharSequence )
+                    units += ( (CharSequence) key ).length( ) + 2;
+            return (int) Math.min( units, Integer.MAX_VALUE - 8 );
+        }
+
+        private final int options;
+        private final double maxLoad;
+        private ArrayList<AnyType> keys = new ArrayList<>( );
+        private ArrayList<AnyType> values = new ArrayList<>( );
+        private MyHashTable<AnyType> table;   // Filled directly if an expected size was given
+    }
+
+    /**
+     * Statistics of a table, see getStats. A probe length is the number of
+     * slots a lookup stepped past its home slot. Histograms are indexed by
+     * length; their last bucket counts that length and every longer one.
+     */
+    public static class Stats
+    {
+        Stats( int size, int capacity, long [ ] hitProbes, long [ ] missProbes, long [ ] clusters,
+               int maxCluster, long rehashes, long rehashNanos, long maxRehashNanos )
+        {
+            this.size = size;
+            this.capacity = capacity;
+            this.hitProbes = hitProbes;
+            this.missProbes = missProbes;
+            this.clusters = clusters;
+            this.maxCluster = maxCluster;
+            this.rehashes = rehashes;
+            this.rehashNanos = rehashNanos;
+            this.maxRehashNanos = maxRehashNanos;
+        }
+
+        public int getSize( )                { return size; }
+        public int getCapacity( )            { return capacity; }
+        public double getLoadFactor( )       { return (double) size / capacity; }
+        public long [ ] getHitProbes( )      { return hitProbes.clone( ); }
+        public long [ ] getMissProbes( )     { return missProbes.clone( ); }
+        public long [ ] getClusterSizes( )   { return clusters.clone( ); }
+        public int getMaxCluster( )          { return maxCluster; }
+        public long getRehashCount( )        { return rehashes; }
+        public long getRehashNanos( )        { return rehashNanos; }
+        public long getMaxRehashNanos( )     { return maxRehashNanos; }
+
+        /**
+         * @param histogram one of the histograms.
+         * @return the mean length, counting the last bucket as its own length.
+         */
+        public static double mean( long [ ] histogram )
+        {
+            long count = 0;
+            long sum = 0;
+            for( int i = 0; i < histogram.length; i++ )
+            {
+                count += histogram[ i ];
+                sum += i * histogram[ i ];
+            }
+            return count == 0 ? 0 : (double) sum / count;
+        }
+
+        /**
+         * @param histogram one of the histograms.
+         * @param q a quantile between 0 and 1, e.g. 0.99.
+         * @return the smallest length that q of the counts do not exceed.
+         */
+        public static int quantile( long [ ] histogram, double q )
+        {
+            long count = 0;
+            for( long n : histogram )
+                count += n;
+            long rank = (long) Math.ceil( q * count );
+            long seen = 0;
+            for( int i = 0; i < histogram.length; i++ )
+                if( ( seen += histogram[ i ] ) >= rank && seen > 0 )
+                    return i;
+            return 0;
+        }
+
+        private static long total( long [ ] histogram )
+        {
+            long count = 0;
+            for( long n : histogram )
+                count += n;
+            return count;
+        }
+
+        public String toString( )
+        {
+            return String.format( "size %d, capacity %d, load %.2f; %d hits (probe mean %.2f, p99 %d); "
+                                  + "%d misses (probe mean %.2f, p99 %d); %d clusters (mean %.2f, max %d); "
+                                  + "%d rehashes in %.1f ms (longest %.1f ms)",
+                                  size, capacity, getLoadFactor( ),
+                                  total( hitProbes ), mean( hitProbes ), quantile( hitProbes, 0.99 ),
+                                  total( missProbes ), mean( missProbes ), quantile( missProbes, 0.99 ),
+                                  total( clusters ), mean( clusters ), maxCluster,
+                                  rehashes, rehashNanos / 1e6, maxRehashNanos / 1e6 );
+        }
+
+        private final int size;
+        private final int capacity;
+        private final long [ ] hitProbes;
+        private final long [ ] missProbes;
+        private final long [ ] clusters;
+        private final int maxCluster;
+        private final long rehashes;
+        private final long rehashNanos;
+        private final long maxRehashNanos;
+    }
+
+    /**
+     * Live counts behind Stats, safe to update from concurrent lookups.
+     */
+    private static class Counters
+    {
+        void probed( boolean hit, int probe )
+        {
+            ( hit ? hitProbes : missProbes ).incrementAndGet( Math.min( probe, HISTOGRAM_LENGTH - 1 ) );
+        }
+
+        void rehashed( long nanos )
+        {
+            rehashes.increment( );
+            rehashNanos.add( nanos );
+            maxRehashNanos = Math.max( maxRehashNanos, nanos );    // Rehash only runs under put
+        }
+
+        final AtomicLongArray hitProbes = new AtomicLongArray( HISTOGRAM_LENGTH );
+        final AtomicLongArray missProbes = new AtomicLongArray( HISTOGRAM_LENGTH );
+        final LongAdder rehashes = new LongAdder( );
+        final LongAdder rehashNanos = new LongAdder( );
+        volatile long maxRehashNanos;
+    }
+
+    public static final int DEFAULT_TABLE_SIZE = 101;
+    public static final double DEFAULT_MAX_LOAD = 0.5;
+    private static final int MAX_PROBE = 127;    // Longest Robin Hood probe
+    private static final int MIGRATE_SLOTS = 16;  // Fewest old slots an INCREMENTAL put moves
+    private static final int HISTOGRAM_LENGTH = 65;   // Stats buckets 0 to 63, then 64 and longer
+
+    private Slots<AnyType> array;         // The array of elements
+    private KeyArena<AnyType> arena;      // Key storage of a COMPACT table
+    private final boolean compact;        // True if keys live in the arena
+    private final boolean robinHood;      // True for Robin Hood probing
+    private final boolean incremental;    // True if rehashes move entries a few at a time
+    private final double maxLoad;         // Load factor that triggers a rehash
+    private final int migrateSlots;       // Old slots moved by each INCREMENTAL put
+    private byte [ ] probes;              // Robin Hood probe length of each slot
+    private int threshold;                // occupied count that triggers a rehash
     private int occupied;                 // The number of occupied cells
     private int theSize;                  // Current size
+    private Slots<AnyType> oldArray;      // INCREMENTAL table being moved out of, or null
+    private byte [ ] oldProbes;           // Robin Hood probe lengths of oldArray
+    private int migrated;                 // Slots of oldArray below this were moved
+    private volatile Counters counters;   // Statistics, or null when not enabled
 
     /**
      * Internal method to allocate array.
@@ -242,7 +1287,19 @@ public class MyHashTable<AnyType> {
      */
     private void allocateArray( int arraySize )
     {
-        array = new HashEntry[ nextPrime( arraySize ) ];
+        arraySize = nextPrime( arraySize );
+        threshold = (int) ( arraySize * maxLoad );
+        if( robinHood )
+            probes = new byte[ arraySize ];
+
+        if( !compact )
+            array = new EntrySlots<>( arraySize );
+        else
+        {
+            if( arena == null )
+                arena = new KeyArena<>( );
+            array = new ArenaSlots<>( arraySize, arena );
+        }
     }
 
     /**
@@ -280,5 +1337,5 @@ public class MyHashTable<AnyType> {
                 return false;
 
         return true;
-    }    
+    }
 }
@@ -0,0 +1,146 @@
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+
+/**
+ *
+ * @author Gayatri
+ * Runs the WordPuzzle scans on a ForkJoinPool by splitting the grid into bands of rows.
+ *
+ * Each band is scanned with the sequential algorithm and the band results are joined
+ * top to bottom, so the list is in exactly the order the sequential scan produces.
+ * Walks may leave their band; only the start cells are split. The dictionary is only
+ * read, so any LookupTable that is not being modified can be shared by the bands.
+ *
+ */
+
+public class ParallelSolver implements AutoCloseable {
+
+	/**
+	 * Construct a solver using one thread per available processor.
+	 */
+	public ParallelSolver() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Construct a solver.
+	 * @param parallelism number of worker threads
+	 */
+	public ParallelSolver(int parallelism) {
+		pool = new ForkJoinPool(parallelism);
+	}
+
+	/**
+	 * Parallel version of WordPuzzle.findWords
+	 * @param puzzle the puzzle whose grid is scanned
+	 * @param dictionary A hash table consisting of all words from Dictionary text file
+	 * @return A list of all words that matches from grid to dictionary
+	 */
+	public ArrayList<String> findWords(WordPuzzle<?> puzzle, LookupTable<String> dictionary) {
+		Grid grid = puzzle.getGrid();
+		return solve(grid, (from, to, wordsFound) -> puzzle.findWords(grid, dictionary, from, to, wordsFound));
+	}
+
+	/**
+	 * Parallel version of WordPuzzle.findWordsUsingPrefix
+	 * @param puzzle the puzzle whose grid is scanned
+	 * @param prefixDictionary A hash table consisting of all words and their prefixes from Dictionary text file
+	 * @return A list of all words that matches from grid to dictionary
+	 */
+	public ArrayList<String> findWordsUsingPrefix(WordPuzzle<?> puzzle, LookupTable<String> prefixDictionary) {
+		return findWordsUsingPrefix(puzzle, prefixDictionary, null);
+	}
+
+	/**
+	 * Parallel version of WordPuzzle.findWordsUsingPrefix with a StartCellFilter
+	 * @param puzzle the puzzle whose grid is scanned
+	 * @param prefixDictionary A hash table consisting of all words and their prefixes from Dictionary text file
+	 * @param filter A filter built from the same dictionary, or null to visit every cell
+	 * @return A list of all words that matches from grid to dictionary
+	 */
+	public ArrayList<String> findWordsUsingPrefix(WordPuzzle<?> puzzle, LookupTable<String> prefixDictionary, StartCellFilter filter) {
+		Grid grid = puzzle.getGrid();
+		return solve(grid, (from, to, wordsFound) -> puzzle.findWordsUsingPrefix(grid, prefixDictionary, filter, from, to, wordsFound));
+	}
+
+	/**
+	 * Parallel version of WordPuzzle.findWordsUsingCursor
+	 * @param puzzle the puzzle whose grid is scanned
+	 * @param dictionary A DAWG of all words from Dictionary text file
+	 * @return A list of all words that matches from grid to dictionary
+	 */
+	public ArrayList<String> findWordsUsingCursor(WordPuzzle<?> puzzle, DawgDictionary dictionary) {
+		Grid grid = puzzle.getGrid();
+		GridScanner scanner = new GridScanner(dictionary);
+		return solve(grid, (from, to, wordsFound) -> scanner.scanRows(grid, from, to, wordsFound));
+	}
+
+	/**
+	 * @return the number of worker threads
+	 */
+	public int getParallelism() {
+		return pool.getParallelism();
+	}
+
+	/**
+	 * Shuts the worker threads down.
+	 */
+	public void close() {
+		pool.shutdown();
+	}
+
+	private ArrayList<String> solve(Grid grid, BandScan scan) {
+		// A few bands per thread so that uneven bands still balance out
+		int bandRows = Math.max(1, grid.rows() / (pool.getParallelism() * BANDS_PER_THREAD));
+		return pool.invoke(new Band(scan, 0, grid.rows(), bandRows));
+	}
+
+	/**
+	 * Sequential scan of the start cells in rows [rowFrom, rowTo).
+	 */
+	private interface BandScan {
+		void scan(int rowFrom, int rowTo, ArrayList<String> wordsFound);
+	}
+
+	/**
+	 * Splits its rows in half until a band is small enough, then scans it.
+	 * The left half's words come first, which keeps the sequential order.
+	 */
+	@SuppressWarnings("serial")	// a task is never serialized
+	private static class Band extends RecursiveTask<ArrayList<String>> {
+		Band(BandScan scan, int rowFrom, int rowTo, int bandRows) {
+			this.scan = scan;
+			this.rowFrom = rowFrom;
+			this.rowTo = rowTo;
+			this.bandRows = bandRows;
+		}
+
+		@Override
+		protected ArrayList<String> compute() {
+			if (rowTo - rowFrom <= bandRows) {
+				ArrayList<String> wordsFound = new ArrayList<String>();
+				scan.scan(rowFrom, rowTo, wordsFound);
+				return wordsFound;
+			}
+
+			int mid = (rowFrom + rowTo) >>> 1;
+			Band top = new Band(scan, rowFrom, mid, bandRows);
+			Band bottom = new Band(scan, mid, rowTo, bandRows);
+			bottom.fork();
+			ArrayList<String> wordsFound = top.compute();
+			wordsFound.addAll(bottom.join());
+			return wordsFound;
+		}
+
+		private final BandScan scan;
+		private final int rowFrom;
+		private final int rowTo;
+		private final int bandRows;
+	}
+
+	private static final int BANDS_PER_THREAD = 4;
+
+	private final ForkJoinPool pool;
+}
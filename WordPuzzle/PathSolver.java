@@ -0,0 +1,235 @@
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+
+/**
+ *
+ * @author Gayatri
+ * Finds the words that can be spelled along any path of adjacent cells, as in Boggle:
+ * each step goes to one of the 8 neighbours of a cell, and no cell is used twice in
+ * a word. The straight lines of WordPuzzle.findWords are a small part of these paths.
+ *
+ * The number of paths grows exponentially with their length, so every path is grown
+ * one cell at a time along the edges of a DawgDictionary and dropped as soon as no word
+ * continues it. The search from a start cell is a depth first search with an explicit
+ * stack of ints and a bit set of the cells on the current path; a path of at most
+ * maxWordLength cells stays in a square window around its start cell, so the bit set only
+ * covers that window, whatever the size of the grid. The stack and bit set belong to the
+ * thread and are reused for every start cell, so the search allocates nothing per step.
+ *
+ * The id of the word spelled so far (DawgDictionary.indexOf) is added up along the path,
+ * so the words found are recorded as bits of a bit set over the dictionary ids, and a
+ * String is only made once for each distinct word when the results are collected.
+ *
+ * The start cells are split into bands of rows that run on a ForkJoinPool; the band bit
+ * sets are merged with OR. The dictionary is only read, so one solver can solve many grids.
+ *
+ */
+
+public class PathSolver implements AutoCloseable {
+
+	/**
+	 * Construct a solver using one thread per available processor.
+	 * @param dictionary the words to look for
+	 * @param minWordLength shortest word reported, e.g. 3 as in Boggle
+	 */
+	public PathSolver(DawgDictionary dictionary, int minWordLength) {
+		this(dictionary, minWordLength, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Construct a solver.
+	 * @param dictionary the words to look for
+	 * @param minWordLength shortest word reported, e.g. 3 as in Boggle
+	 * @param parallelism number of worker threads
+	 */
+	public PathSolver(DawgDictionary dictionary, int minWordLength, int parallelism) {
+		if (minWordLength < 1)
+			throw new IllegalArgumentException("minWordLength must be at least 1: " + minWordLength);
+		this.dictionary = dictionary;
+		this.minWordLength = minWordLength;
+		maxWordLength = dictionary.maxWordLength();
+		pool = new ForkJoinPool(parallelism);
+	}
+
+	/**
+	 * Finds the words along paths of the grid.
+	 * @param grid word grid of WordPuzzle
+	 * @return every distinct word found, in ascending String order
+	 */
+	public ArrayList<String> findWords(Grid grid) {
+		long[] found = findWordIds(grid);
+		ArrayList<String> words = new ArrayList<String>();
+		for (int w = 0; w < found.length; w++)
+			for (long bits = found[w]; bits != 0; bits &= bits - 1)
+				words.add(dictionary.wordAt(w << 6 | Long.numberOfTrailingZeros(bits)));
+		return words;
+	}
+
+	/**
+	 * Finds the words along paths of the grid, as dictionary ids.
+	 * @param grid word grid of WordPuzzle
+	 * @return a bit set with bit id set for every word found, see DawgDictionary.wordAt
+	 */
+	public long[] findWordIds(Grid grid) {
+		// A few bands per thread so that uneven bands still balance out
+		int bandRows = Math.max(1, grid.rows() / (pool.getParallelism() * BANDS_PER_THREAD));
+		return pool.invoke(new Band(grid, 0, grid.rows(), bandRows));
+	}
+
+	/**
+	 * @return the number of worker threads
+	 */
+	public int getParallelism() {
+		return pool.getParallelism();
+	}
+
+	/**
+	 * Shuts the worker threads down.
+	 */
+	public void close() {
+		pool.shutdown();
+	}
+
+	/**
+	 * Searches all paths from the start cells of rows [rowFrom, rowTo) and sets the bits of the words found.
+	 */
+	private void searchRows(Grid grid, int rowFrom, int rowTo, long[] found) {
+		Walker walker = walkers.get();
+		for (int row = rowFrom; row < rowTo; row++)
+			for (int col = 0; col < grid.cols(); col++)
+				walker.search(grid, row, col, found);
+	}
+
+	/**
+	 * The stack and path bit set of one thread.
+	 */
+	private class Walker {
+		Walker() {
+			side = 2 * maxWordLength - 1;
+			onPath = new long[(side * side + 63) >>> 6];
+			rows = new int[maxWordLength];
+			cols = new int[maxWordLength];
+			states = new int[maxWordLength];
+			ids = new int[maxWordLength];
+			tried = new int[maxWordLength];
+		}
+
+		/**
+		 * Depth first search of every path from (startRow, startCol). Level i of the stack is
+		 * the i + 1th cell of the path: its position, the DAWG state and id sum reached there,
+		 * and how many of its neighbours have been tried.
+		 */
+		void search(Grid grid, int startRow, int startCol, long[] found) {
+			int e = dictionary.edge(dictionary.root(), grid.get(startRow, startCol));
+			if (e < 0)
+				return;		// no word starts with this letter
+			int rowCount = grid.rows();
+			int colCount = grid.cols();
+			// The start cell is at the middle of the window
+			int windowRow = maxWordLength - 1 - startRow;
+			int windowCol = maxWordLength - 1 - startCol;
+
+			int depth = 0;
+			rows[0] = startRow;
+			cols[0] = startCol;
+			states[0] = dictionary.target(e);
+			ids[0] = dictionary.rank(e);
+			tried[0] = 0;
+			mark((windowRow + startRow) * side + windowCol + startCol);
+			if (minWordLength <= 1 && dictionary.isWord(states[0]))
+				found[ids[0] >>> 6] |= 1L << ids[0];
+
+			while (depth >= 0) {
+				if (tried[depth] == WordPuzzle.DIRECTIONS || depth + 1 == maxWordLength || !dictionary.hasContinuation(states[depth])) {
+					unmark((windowRow + rows[depth]) * side + windowCol + cols[depth]);
+					depth--;
+					continue;
+				}
+				int d = ++tried[depth];
+				int r = rows[depth] + WordPuzzle.rowDelta[d];
+				int c = cols[depth] + WordPuzzle.colDelta[d];
+				if (r < 0 || r >= rowCount || c < 0 || c >= colCount)
+					continue;
+				int cell = (windowRow + r) * side + windowCol + c;
+				if ((onPath[cell >>> 6] & (1L << cell)) != 0)
+					continue;	// already on the path
+				e = dictionary.edge(states[depth], grid.get(r, c));
+				if (e < 0)
+					continue;	// no word continues this way
+
+				depth++;
+				rows[depth] = r;
+				cols[depth] = c;
+				states[depth] = dictionary.target(e);
+				ids[depth] = ids[depth - 1] + dictionary.rank(e);
+				tried[depth] = 0;
+				mark(cell);
+				if (depth + 1 >= minWordLength && dictionary.isWord(states[depth]))
+					found[ids[depth] >>> 6] |= 1L << ids[depth];
+			}
+		}
+
+		private void mark(int cell) {
+			onPath[cell >>> 6] |= 1L << cell;
+		}
+
+		private void unmark(int cell) {
+			onPath[cell >>> 6] &= ~(1L << cell);
+		}
+
+		private final int side;			// side of the window around the start cell
+		private final long[] onPath;	// bit set of the window cells on the current path
+		private final int[] rows;
+		private final int[] cols;
+		private final int[] states;
+		private final int[] ids;
+		private final int[] tried;
+	}
+
+	/**
+	 * Splits its rows in half until a band is small enough, then searches it.
+	 */
+	@SuppressWarnings("serial")	// a task is never serialized
+	private class Band extends RecursiveTask<long[]> {
+		Band(Grid grid, int rowFrom, int rowTo, int bandRows) {
+			this.grid = grid;
+			this.rowFrom = rowFrom;
+			this.rowTo = rowTo;
+			this.bandRows = bandRows;
+		}
+
+		@Override
+		protected long[] compute() {
+			if (rowTo - rowFrom <= bandRows) {
+				long[] found = new long[(dictionary.size() + 63) >>> 6];
+				searchRows(grid, rowFrom, rowTo, found);
+				return found;
+			}
+
+			int mid = (rowFrom + rowTo) >>> 1;
+			Band top = new Band(grid, rowFrom, mid, bandRows);
+			Band bottom = new Band(grid, mid, rowTo, bandRows);
+			bottom.fork();
+			long[] found = top.compute();
+			long[] more = bottom.join();
+			for (int i = 0; i < found.length; i++)
+				found[i] |= more[i];
+			return found;
+		}
+
+		private final Grid grid;
+		private final int rowFrom;
+		private final int rowTo;
+		private final int bandRows;
+	}
+
+	private static final int BANDS_PER_THREAD = 4;
+
+	private final DawgDictionary dictionary;
+	private final int minWordLength;
+	private final int maxWordLength;
+	private final ForkJoinPool pool;
+	private final ThreadLocal<Walker> walkers = ThreadLocal.withInitial(Walker::new);
+}
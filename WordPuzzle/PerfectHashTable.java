@@ -0,0 +1,410 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+
+/**
+ *
+ * @author Gayatri
+ * Read-only table for a dictionary that does not change once it is loaded, indexed by a
+ * minimal perfect hash function: a function built for the key set that maps its n keys
+ * onto 0 .. n - 1 without collisions. Key i is stored at slot i of a packed arena, so a
+ * lookup is one hash, one slot and one compare, with no empty slots and no probing.
+ *
+ * The keys are grouped by length, and each group has its own function and an arena of
+ * fixed width slots: key i of length L is at arena[i * L .. (i + 1) * L). The length of a
+ * key is known before it is hashed, so no offsets are kept. The arena is a byte per
+ * character if all keys of the group are Latin-1, else a char per character.
+ *
+ * The function of a group is BBHash (Limasset et al., 2017): level 0 is a bit array of
+ * GAMMA times n bits, into which every key hashes. The bits hit by exactly one key are
+ * set; the keys that collided go on to level 1, with GAMMA times as many bits as they are
+ * keys, and so on until every key has a bit of its own. A key's index is the number of
+ * set bits before its bit, counted with a rank sample every RANK_WORDS longs. With a
+ * GAMMA of 2 that is about 3.5 bits per key, against 32 or more for the references of a
+ * half-empty table. All levels are derived from one 64 bit hash of the key.
+ *
+ * A key that is not in the table also maps to some slot (or to no set bit), so the slot
+ * is always compared with the key.
+ *
+ */
+
+public class PerfectHashTable implements LookupTable<String> {
+
+	public boolean contains(String x) {
+		return find(x, null, 0, x.length()) >= 0;
+	}
+
+	/**
+	 * @return the value of the key, or null if the key is absent
+	 */
+	public String get(String key) {
+		int length = key.length();
+		int index = find(key, null, 0, length);
+		return index < 0 ? null : groups[length].value(index, values);
+	}
+
+	/**
+	 * Hashes and compares the characters straight from the array; no String is made.
+	 */
+	@Override
+	public boolean contains(char[] chars, int offset, int length) {
+		return find(null, chars, offset, length) >= 0;
+	}
+
+	/**
+	 * Hashes and compares the characters straight from the array; no String is made.
+	 */
+	@Override
+	public String get(char[] chars, int offset, int length) {
+		int index = find(null, chars, offset, length);
+		return index < 0 ? null : groups[length].value(index, values);
+	}
+
+	/**
+	 * @return number of keys
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return bits of the hash functions (bit arrays, rank samples and levels) per key
+	 */
+	public double indexBitsPerKey() {
+		long bits = 0;
+		for (Group group : groups)
+			if (group != null)
+				bits += group.indexBits();
+		return size == 0 ? 0 : bits / (double) size;
+	}
+
+	/**
+	 * @return bytes taken by the hash functions, the arenas and the values
+	 */
+	public long memoryBytes() {
+		long bytes = 0;
+		for (Group group : groups)
+			if (group != null)
+				bytes += (group.indexBits() + 7) / 8 + group.keyBytes() + 8L * group.valueIds.length;
+		return bytes;
+	}
+
+	@Override
+	public String toString() {
+		long keyBytes = 0;
+		for (Group group : groups)
+			if (group != null)
+				keyBytes += group.keyBytes();
+		return "size " + size + ", " + String.format("%.2f", indexBitsPerKey()) + " bits per key of index, "
+				+ (keyBytes >> 10) + " KB of keys, " + (memoryBytes() >> 10) + " KB";
+	}
+
+	/**
+	 * Collects keys and values, then builds the table for all of them at once.
+	 */
+	public static class Builder {
+
+		/**
+		 * Add a key. A later value of the same key replaces an earlier one.
+		 * @param key the key, not empty
+		 * @param value its value, e.g. WordPuzzle.WORD; at most 256 different values
+		 * @return this builder
+		 */
+		public Builder put(String key, String value) {
+			if (key.isEmpty())
+				throw new IllegalArgumentException("A key cannot be empty");
+			entries.put(key, value);
+			return this;
+		}
+
+		/**
+		 * Add keys that all have the same value.
+		 * @param keys the keys
+		 * @param value their value
+		 * @return this builder
+		 */
+		public Builder putAll(Collection<String> keys, String value) {
+			for (String key : keys)
+				put(key, value);
+			return this;
+		}
+
+		/**
+		 * @param key a key
+		 * @return true if the key has been added
+		 */
+		public boolean contains(String key) {
+			return entries.containsKey(key);
+		}
+
+		/**
+		 * Build the table. The builder can be used again afterwards.
+		 * @return a table holding every key added
+		 * @throws IllegalArgumentException if the keys have more than 256 different values
+		 */
+		public PerfectHashTable build() {
+			// Values get ids in order of appearance; with one value no bits are kept at all
+			ArrayList<String> values = new ArrayList<String>();
+			HashMap<String, Integer> ids = new HashMap<String, Integer>();
+			int longest = 0;
+			for (Map.Entry<String, String> e : entries.entrySet()) {
+				if (!ids.containsKey(e.getValue())) {
+					if (values.size() == 256)
+						throw new IllegalArgumentException("A PerfectHashTable holds at most 256 different values");
+					ids.put(e.getValue(), values.size());
+					values.add(e.getValue());
+				}
+				longest = Math.max(longest, e.getKey().length());
+			}
+			// Bits of an id, rounded up to a power of two so that no id spans two longs
+			int idBits = 32 - Integer.numberOfLeadingZeros(Math.max(0, values.size() - 1));
+			int valueBits = idBits <= 1 ? idBits : Integer.highestOneBit(idBits - 1) << 1;
+
+			// The keys of each length, with their value ids
+			int[] counts = new int[longest + 1];
+			for (String key : entries.keySet())
+				counts[key.length()]++;
+			String[][] keys = new String[longest + 1][];
+			int[][] valueIds = new int[longest + 1][];
+			for (int length = 1; length <= longest; length++) {
+				keys[length] = new String[counts[length]];
+				valueIds[length] = new int[counts[length]];
+			}
+			Arrays.fill(counts, 0);
+			for (Map.Entry<String, String> e : entries.entrySet()) {
+				int length = e.getKey().length();
+				keys[length][counts[length]] = e.getKey();
+				valueIds[length][counts[length]++] = ids.get(e.getValue());
+			}
+
+			for (long seed = 0x5EED; ; seed++) {
+				Group[] groups = new Group[longest + 1];
+				boolean built = true;
+				for (int length = 1; length <= longest && built; length++) {
+					if (keys[length].length > 0) {
+						groups[length] = Group.build(keys[length], valueIds[length], valueBits, seed);
+						built = groups[length] != null;
+					}
+				}
+				// A failure means two keys of one length had the same 64 bit hash: try another seed
+				if (built)
+					return new PerfectHashTable(groups, values.toArray(new String[values.size()]), entries.size(), seed);
+			}
+		}
+
+		private final HashMap<String, String> entries = new HashMap<String, String>();
+	}
+
+	/**
+	 * The keys of one length: their hash function, arena and value ids.
+	 */
+	private static class Group {
+		Group(int length, long[] bits, int[] ranks, int[] levelStarts, int[] levelSizes, byte[] latin, char[] wide, long[] valueIds, int valueBits) {
+			this.length = length;
+			this.bits = bits;
+			this.ranks = ranks;
+			this.levelStarts = levelStarts;
+			this.levelSizes = levelSizes;
+			this.latin = latin;
+			this.wide = wide;
+			this.valueIds = valueIds;
+			this.valueBits = valueBits;
+		}
+
+		/**
+		 * Builds the levels of the hash function for keys all of the same length, then fills the arena by it.
+		 * @return the group, or null if two keys have the same hash
+		 */
+		static Group build(String[] keys, int[] valueIds, int valueBits, long seed) {
+			int n = keys.length;
+			int length = keys[0].length();
+			long[] hashes = new long[n];
+			for (int i = 0; i < n; i++)
+				hashes[i] = hash(keys[i], null, 0, length, seed);
+			long[] sorted = hashes.clone();
+			Arrays.sort(sorted);
+			for (int i = 1; i < n; i++)
+				if (sorted[i] == sorted[i - 1])
+					return null;	// no level could ever tell these two apart
+
+			// Each level keeps the bits hit by one key only; the others go on to the next level
+			ArrayList<long[]> levels = new ArrayList<long[]>();
+			int[] remaining = new int[n];
+			for (int i = 0; i < n; i++)
+				remaining[i] = i;
+			int left = n;
+			while (left > 0) {
+				int size = (int) Math.max(64, ((long) Math.ceil(left * GAMMA) + 63) & ~63L);
+				long[] hit = new long[size >>> 6];
+				long[] collided = new long[size >>> 6];
+				int level = levels.size();
+				for (int i = 0; i < left; i++) {
+					int p = position(hashes[remaining[i]], level, size);
+					if ((hit[p >>> 6] & (1L << p)) != 0)
+						collided[p >>> 6] |= 1L << p;
+					hit[p >>> 6] |= 1L << p;
+				}
+				int next = 0;
+				for (int i = 0; i < left; i++) {
+					int p = position(hashes[remaining[i]], level, size);
+					if ((collided[p >>> 6] & (1L << p)) != 0)
+						remaining[next++] = remaining[i];
+				}
+				for (int w = 0; w < hit.length; w++)
+					hit[w] &= ~collided[w];
+				levels.add(hit);
+				left = next;
+			}
+
+			int words = 0;
+			int[] levelStarts = new int[levels.size()];
+			int[] levelSizes = new int[levels.size()];
+			for (int level = 0; level < levels.size(); level++) {
+				levelStarts[level] = words << 6;
+				levelSizes[level] = levels.get(level).length << 6;
+				words += levels.get(level).length;
+			}
+			long[] bits = new long[words];
+			for (int level = 0; level < levels.size(); level++)
+				System.arraycopy(levels.get(level), 0, bits, levelStarts[level] >>> 6, levels.get(level).length);
+			int[] ranks = new int[(words + RANK_WORDS - 1) / RANK_WORDS];
+			int ones = 0;
+			for (int w = 0; w < words; w++) {
+				if (w % RANK_WORDS == 0)
+					ranks[w / RANK_WORDS] = ones;
+				ones += Long.bitCount(bits[w]);
+			}
+
+			boolean latin1 = true;
+			for (String key : keys)
+				for (int i = 0; i < length; i++)
+					latin1 &= key.charAt(i) <= 0xFF;
+			Group group = new Group(length, bits, ranks, levelStarts, levelSizes, latin1 ? new byte[n * length] : null,
+					latin1 ? null : new char[n * length], new long[valueBits == 0 ? 0 : (int) (((long) n * valueBits + 63) >>> 6)], valueBits);
+			for (int i = 0; i < n; i++) {
+				int index = group.index(hashes[i]);
+				for (int c = 0; c < length; c++) {
+					if (latin1)
+						group.latin[index * length + c] = (byte) keys[i].charAt(c);
+					else
+						group.wide[index * length + c] = keys[i].charAt(c);
+				}
+				if (valueBits > 0)
+					group.valueIds[(int) ((long) index * valueBits >>> 6)] |= (long) valueIds[i] << (index * valueBits);
+			}
+			return group;
+		}
+
+		/**
+		 * @return the index of the key with this hash if it is a key, else -1 or any index
+		 */
+		int index(long h) {
+			for (int level = 0; level < levelStarts.length; level++) {
+				int p = levelStarts[level] + position(h, level, levelSizes[level]);
+				long word = bits[p >>> 6];
+				if ((word & (1L << p)) != 0) {
+					// Set bits before p: the sample, the longs since it, and the bits of this one
+					int w = p >>> 6;
+					int rank = ranks[w / RANK_WORDS];
+					for (int i = w - w % RANK_WORDS; i < w; i++)
+						rank += Long.bitCount(bits[i]);
+					return rank + Long.bitCount(word & ((1L << p) - 1));
+				}
+			}
+			return -1;
+		}
+
+		boolean keyEquals(int index, String key, char[] chars, int offset) {
+			int start = index * length;
+			for (int i = 0; i < length; i++) {
+				char c = chars != null ? chars[offset + i] : key.charAt(i);
+				if ((latin != null ? (char) (latin[start + i] & 0xFF) : wide[start + i]) != c)
+					return false;
+			}
+			return true;
+		}
+
+		String value(int index, String[] values) {
+			if (valueBits == 0)
+				return values[0];
+			long word = valueIds[(int) ((long) index * valueBits >>> 6)];
+			return values[(int) (word >>> (index * valueBits)) & ((1 << valueBits) - 1)];
+		}
+
+		long indexBits() {
+			return 64L * bits.length + 32L * ranks.length + 64L * levelStarts.length;
+		}
+
+		long keyBytes() {
+			return latin != null ? latin.length : 2L * wide.length;
+		}
+
+		final int length;
+		final long[] bits;			// the bit arrays of all levels, one after the other
+		final int[] ranks;			// set bits before every RANK_WORDS longs of bits
+		final int[] levelStarts;	// first bit of every level
+		final int[] levelSizes;		// bits of every level, a multiple of 64
+		final byte[] latin;			// the keys by index, a byte per character, or null
+		final char[] wide;			// the keys by index if some are not Latin-1
+		final long[] valueIds;		// value ids by index, valueBits each
+		final int valueBits;		// 0, 1, 2, 4 or 8
+	}
+
+	private PerfectHashTable(Group[] groups, String[] values, int size, long seed) {
+		this.groups = groups;
+		this.values = values;
+		this.size = size;
+		this.seed = seed;
+	}
+
+	/**
+	 * Finds a key, read from chars if chars is not null, else from key.
+	 * @return its index in the group of its length, or -1
+	 */
+	private int find(String key, char[] chars, int offset, int length) {
+		if (length == 0 || length >= groups.length || groups[length] == null)
+			return -1;		// no key has this length, without hashing
+		Group group = groups[length];
+		int index = group.index(hash(key, chars, offset, length, seed));
+		return index >= 0 && group.keyEquals(index, key, chars, offset) ? index : -1;
+	}
+
+	/**
+	 * 64 bit hash of the key, from which the position at every level is derived.
+	 */
+	private static long hash(String key, char[] chars, int offset, int length, long seed) {
+		long h = seed;
+		for (int i = 0; i < length; i++)
+			h = (h ^ (chars != null ? chars[offset + i] : key.charAt(i))) * HASH_MULTIPLIER;
+		return finish(h);
+	}
+
+	private static long finish(long h) {
+		h ^= h >>> 32;
+		h *= 0xD6E8FEB86659FD93L;
+		return h ^ (h >>> 32);
+	}
+
+	/**
+	 * The bit of the key at a level, in [0, size): the hash itself at level 0, remixed above
+	 * it, mapped with a multiply instead of a division.
+	 */
+	private static int position(long h, int level, int size) {
+		if (level > 0)
+			h = finish(h + level * HASH_MULTIPLIER);
+		return (int) (((h >>> 32) * size) >>> 32);
+	}
+
+	/** Bits of a level per key hashed into it. */
+	public static final double GAMMA = 2.0;
+	private static final int RANK_WORDS = 8;
+	private static final long HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+	private final Group[] groups;		// by key length; null where no key has that length
+	private final String[] values;		// values by id
+	private final int size;
+	private final long seed;
+}
@@ -0,0 +1,49 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+
+/**
+ *
+ * @author Gayatri
+ * Java Flight Recorder event committed by MyHashTable for every rehash. Its duration is
+ * the time the rehash took, so a slow put or lookup in a recording can be matched to the
+ * table growth that held it up, e.g. with
+ *   java -XX:StartFlightRecording=filename=puzzle.jfr WordPuzzle
+ *   jfr print --events WordPuzzle.Rehash puzzle.jfr
+ * The event is enabled by default; it costs next to nothing when no recording runs.
+ *
+ */
+
+@Name("WordPuzzle.Rehash")
+@Label("Hash Table Rehash")
+@Category("WordPuzzle")
+@Description("MyHashTable moved every entry into a larger table")
+class RehashEvent extends Event {
+
+	@Label("Old Capacity")
+	int oldCapacity;
+
+	@Label("New Capacity")
+	int newCapacity;
+
+	@Label("Size")
+	@Description("Number of keys in the table")
+	int size;
+
+	@Label("Attempts")
+	@Description("Tables allocated: Robin Hood doubles again if some probe would pass its cap")
+	int attempts;
+
+	@Label("Robin Hood")
+	boolean robinHood;
+
+	@Label("Compact")
+	boolean compact;
+
+	@Label("Incremental")
+	@Description("Only the new table was allocated; puts move the entries over later")
+	boolean incremental;
+}
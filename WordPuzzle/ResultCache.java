@@ -0,0 +1,313 @@
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.function.Function;
+
+
+/**
+ *
+ * @author Gayatri
+ * Bounded cache of the words found in grids, for clients that submit the same grid many
+ * times. A grid is keyed by the SHA-256 digest of its size, its letters and the version of
+ * the dictionary it was solved against, so a repeat solve costs one pass of the digest
+ * over the grid and a map lookup instead of a scan. A different dictionary, or a new
+ * version of one, gets different keys, and its old results age out of the cache.
+ *
+ * The cache holds at most maxBytes of results, by an estimate of the memory of each
+ * result, and evicts with a segmented LRU: a new result goes into the probation segment,
+ * and moves to the protected segment (PROTECTED_SHARE of maxBytes) when it is asked for
+ * again. The least recently used result of the protected segment moves back to
+ * probation when that segment is full, and the least recently used result of probation
+ * is evicted. A stream of grids seen only once therefore cannot push out the grids that
+ * keep coming back.
+ *
+ * All methods can be called from any thread. A grid that two threads miss at the same
+ * time is solved by both; the first result stays.
+ *
+ */
+
+public class ResultCache {
+
+	/**
+	 * Construct an empty cache.
+	 * @param maxBytes most bytes of results kept, as estimated
+	 */
+	public ResultCache(long maxBytes) {
+		if (maxBytes < 1)
+			throw new IllegalArgumentException("maxBytes must be at least 1: " + maxBytes);
+		this.maxBytes = maxBytes;
+		maxProtectedBytes = (long) (maxBytes * PROTECTED_SHARE);
+	}
+
+	/**
+	 * A version for a dictionary text file: the first 8 bytes of the SHA-256 digest of its contents.
+	 * @param dictionary the dictionary file
+	 * @return the version
+	 * @throws IOException if the file cannot be read
+	 */
+	public static long dictionaryVersion(File dictionary) throws IOException {
+		MessageDigest digest = digests.get();
+		byte[] buffer = new byte[1 << 16];
+		try (InputStream in = new FileInputStream(dictionary)) {
+			for (int n = in.read(buffer); n >= 0; n = in.read(buffer))
+				digest.update(buffer, 0, n);
+		}
+		byte[] hash = digest.digest();
+		long version = 0;
+		for (int i = 0; i < 8; i++)
+			version = version << 8 | (hash[i] & 0xFF);
+		return version;
+	}
+
+	/**
+	 * Returns the cached words of the grid, or solves it and caches the words.
+	 * @param grid the grid
+	 * @param dictionaryVersion identifies the dictionary the solver uses, e.g. dictionaryVersion(File)
+	 * @param solver finds the words of the grid, on a miss
+	 * @return the words, as the solver returned them; the list cannot be modified
+	 */
+	public List<String> get(Grid grid, long dictionaryVersion, Function<Grid, ? extends List<String>> solver) {
+		Key key = key(grid, dictionaryVersion);
+		List<String> words = get(key);
+		if (words != null)
+			return words;
+		return put(key, solver.apply(grid));
+	}
+
+	/**
+	 * Caches the words of a grid that was solved without the cache.
+	 * @param grid the grid
+	 * @param dictionaryVersion identifies the dictionary it was solved against
+	 * @param words its words
+	 * @return the cached words, which cannot be modified
+	 */
+	public List<String> put(Grid grid, long dictionaryVersion, List<String> words) {
+		return put(key(grid, dictionaryVersion), words);
+	}
+
+	/**
+	 * Drops every result; the metrics are kept.
+	 */
+	public synchronized void clear() {
+		probation.clear();
+		protectedSegment.clear();
+		probationBytes = 0;
+		protectedBytes = 0;
+	}
+
+	/**
+	 * @return number of grids cached
+	 */
+	public synchronized int size() {
+		return probation.size() + protectedSegment.size();
+	}
+
+	/**
+	 * @return estimated bytes of the results cached
+	 */
+	public synchronized long usedBytes() {
+		return probationBytes + protectedBytes;
+	}
+
+	/**
+	 * @return most bytes of results kept
+	 */
+	public long maxBytes() {
+		return maxBytes;
+	}
+
+	/**
+	 * @return number of gets answered from the cache
+	 */
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	/**
+	 * @return number of gets that had to solve their grid
+	 */
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * @return number of results evicted to make room
+	 */
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * @return hits over gets, or 0 before the first get
+	 */
+	public synchronized double getHitRatio() {
+		return hits + misses == 0 ? 0 : hits / (double) (hits + misses);
+	}
+
+	@Override
+	public synchronized String toString() {
+		return String.format("%d grids, %d of %d KB (%d KB protected), %d hits, %d misses, hit ratio %.3f, %d evictions",
+				size(), usedBytes() >> 10, maxBytes >> 10, protectedBytes >> 10, hits, misses, getHitRatio(), evictions);
+	}
+
+	/**
+	 * Looks a key up, promoting a probation result that is asked for again.
+	 * @return the words, or null on a miss
+	 */
+	private synchronized List<String> get(Key key) {
+		Entry entry = protectedSegment.get(key);
+		if (entry == null) {
+			entry = probation.remove(key);
+			if (entry == null) {
+				misses++;
+				return null;
+			}
+			probationBytes -= entry.bytes;
+			protectedSegment.put(key, entry);
+			protectedBytes += entry.bytes;
+			// The least recently used protected results get one more chance in probation
+			for (Iterator<Entry> it = protectedSegment.values().iterator(); protectedBytes > maxProtectedBytes && it.hasNext(); ) {
+				Entry demoted = it.next();
+				it.remove();
+				protectedBytes -= demoted.bytes;
+				probation.put(demoted.key, demoted);
+				probationBytes += demoted.bytes;
+			}
+		}
+		hits++;
+		return entry.words;
+	}
+
+	/**
+	 * Adds a result to probation and evicts until the cache is back under maxBytes. A result
+	 * larger than maxBytes is returned without being cached.
+	 * @return the words cached for the key: these, or those another thread put first
+	 */
+	private List<String> put(Key key, List<String> found) {
+		String[] array = found.toArray(new String[found.size()]);
+		long bytes = ENTRY_BYTES + (long) REFERENCE_BYTES * array.length;
+		for (String word : array)
+			bytes += STRING_BYTES + ((word.length() + 7) & ~7);
+		Entry entry = new Entry(key, Collections.unmodifiableList(Arrays.asList(array)), bytes);
+		if (bytes > maxBytes)
+			return entry.words;
+
+		synchronized (this) {
+			Entry cached = protectedSegment.get(key);
+			if (cached == null)
+				cached = probation.get(key);
+			if (cached != null)
+				return cached.words;
+			probation.put(key, entry);
+			probationBytes += bytes;
+			while (probationBytes + protectedBytes > maxBytes) {
+				LinkedHashMap<Key, Entry> segment = probation.isEmpty() ? protectedSegment : probation;
+				Iterator<Entry> it = segment.values().iterator();
+				Entry evicted = it.next();
+				it.remove();
+				if (segment == probation)
+					probationBytes -= evicted.bytes;
+				else
+					protectedBytes -= evicted.bytes;
+				evictions++;
+			}
+			return entry.words;
+		}
+	}
+
+	/**
+	 * The digest of the dictionary version, the grid size and every letter, two bytes each, row by row.
+	 */
+	private static Key key(Grid grid, long dictionaryVersion) {
+		MessageDigest digest = digests.get();
+		int rows = grid.rows();
+		int cols = grid.cols();
+		byte[] row = new byte[Math.max(16, 2 * cols)];
+		for (int i = 0; i < 8; i++)
+			row[i] = (byte) (dictionaryVersion >>> (56 - 8 * i));
+		for (int i = 0; i < 4; i++) {
+			row[8 + i] = (byte) (rows >>> (24 - 8 * i));
+			row[12 + i] = (byte) (cols >>> (24 - 8 * i));
+		}
+		digest.update(row, 0, 16);
+		for (int r = 0; r < rows; r++) {
+			for (int c = 0; c < cols; c++) {
+				char letter = grid.get(r, c);
+				row[2 * c] = (byte) (letter >>> 8);
+				row[2 * c + 1] = (byte) letter;
+			}
+			digest.update(row, 0, 2 * cols);
+		}
+		return new Key(digest.digest());
+	}
+
+	/**
+	 * A SHA-256 digest; its first bytes are already a good hash code.
+	 */
+	private static class Key {
+		Key(byte[] digest) {
+			this.digest = digest;
+			hash = (digest[0] & 0xFF) << 24 | (digest[1] & 0xFF) << 16 | (digest[2] & 0xFF) << 8 | (digest[3] & 0xFF);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			return o instanceof Key && Arrays.equals(digest, ((Key) o).digest);
+		}
+
+		private final byte[] digest;
+		private final int hash;
+	}
+
+	private static class Entry {
+		Entry(Key key, List<String> words, long bytes) {
+			this.key = key;
+			this.words = words;
+			this.bytes = bytes;
+		}
+
+		final Key key;
+		final List<String> words;
+		final long bytes;
+	}
+
+	/** Share of maxBytes kept for results that were asked for more than once. */
+	public static final double PROTECTED_SHARE = 0.8;
+	// Estimates for a 64 bit JVM with compressed references and Latin-1 Strings
+	private static final int ENTRY_BYTES = 200;		// key, digest, entry, list wrappers, map node and array header
+	private static final int REFERENCE_BYTES = 4;
+	private static final int STRING_BYTES = 40;		// String and byte[] headers
+
+	private static final ThreadLocal<MessageDigest> digests = ThreadLocal.withInitial(() -> {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		}
+		catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);		// every Java platform has SHA-256
+		}
+	});
+
+	private final long maxBytes;
+	private final long maxProtectedBytes;
+	// In access order: the first result is the least recently used
+	private final LinkedHashMap<Key, Entry> probation = new LinkedHashMap<Key, Entry>(16, 0.75f, true);
+	private final LinkedHashMap<Key, Entry> protectedSegment = new LinkedHashMap<Key, Entry>(16, 0.75f, true);
+	private long probationBytes;
+	private long protectedBytes;
+	private long hits;
+	private long misses;
+	private long evictions;
+}
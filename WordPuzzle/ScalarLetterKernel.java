@@ -0,0 +1,26 @@
+/**
+ *
+ * @author Gayatri
+ * LetterKernel that tests one letter at a time; used when the Vector API is absent.
+ *
+ */
+
+class ScalarLetterKernel implements LetterKernel {
+
+	/**
+	 * @param set 256 bit set of letters
+	 */
+	ScalarLetterKernel(long[] set) {
+		this.set = set.clone();
+	}
+
+	public void members(byte[] letters, int count, long[] out) {
+		for (int i = 0; i < count; i++) {
+			int b = letters[i] & 0xFF;
+			if ((set[b >>> 6] & (1L << b)) != 0)
+				out[i >>> 6] |= 1L << i;
+		}
+	}
+
+	private final long[] set;
+}
@@ -0,0 +1,167 @@
+import java.util.Arrays;
+
+
+/**
+ *
+ * @author Gayatri
+ * Pre-pass of WordPuzzle.findWordsUsingPrefix that finds, row by row, the start cells
+ * worth visiting and the directions worth walking from each.
+ *
+ * For every cell it computes a mask: bit 0 if the letter alone is a word, and bit d
+ * (d = 1..8) if the letter and its neighbour in direction d begin some dictionary word.
+ * A cell whose mask is 0 cannot start any word, so the solver skips it without building
+ * a String or probing the dictionary, and it never walks a direction whose bit is 0.
+ *
+ * The first letter test runs over a whole row at once in a LetterKernel: vectorized with
+ * jdk.incubator.vector when that module is present, else scalar. Letter pairs are then
+ * only tested for the cells that passed. Both tables are read from the dictionary when
+ * the filter is built, so any LookupTable that answers prefixes can be used. Letters
+ * above Latin-1 are never filtered out.
+ *
+ */
+
+public class StartCellFilter {
+
+	/**
+	 * Builds the letter and letter pair tables.
+	 * @param prefixDictionary words mapped to WordPuzzle.WORD and their prefixes to WordPuzzle.PREFIX
+	 */
+	public StartCellFilter(LookupTable<String> prefixDictionary) {
+		for (char a = 0; a < 256; a++) {
+			String value = prefixDictionary.get(String.valueOf(a));
+			if (value == null)
+				continue;
+			starts[a >>> 6] |= 1L << a;
+			if (value.equals(WordPuzzle.WORD))
+				words[a >>> 6] |= 1L << a;
+
+			char[] pair = { a, 0 };
+			for (char b = 0; b < 256; b++) {
+				pair[1] = b;
+				if (prefixDictionary.get(new String(pair)) != null)
+					pairs[(a << 8 | b) >>> 6] |= 1L << b;
+			}
+		}
+
+		long[] candidates = starts.clone();
+		candidates[WIDE >>> 6] |= 1L << WIDE;		// letters above Latin-1 are read as WIDE
+		kernel = newKernel(candidates);
+	}
+
+	/**
+	 * Computes the masks of one row.
+	 * @param grid word grid of WordPuzzle
+	 * @param row the row
+	 * @return the mask of every cell of the row
+	 */
+	public int[] rowMasks(Grid grid, int row) {
+		int[] masks = new int[grid.cols()];
+		rowMasks(grid, row, new Scratch(grid.cols()), masks);
+		return masks;
+	}
+
+	/**
+	 * @param grid word grid of WordPuzzle
+	 * @return number of cells whose mask is not 0, i.e. start cells the solver visits
+	 */
+	public long countStartCells(Grid grid) {
+		long count = 0;
+		Scratch scratch = new Scratch(grid.cols());
+		int[] masks = new int[grid.cols()];
+		for (int row = 0; row < grid.rows(); row++) {
+			rowMasks(grid, row, scratch, masks);
+			for (int mask : masks)
+				if (mask != 0)
+					count++;
+		}
+		return count;
+	}
+
+	/**
+	 * @return true if the first letter test runs on the Vector API
+	 */
+	public boolean isVectorized() {
+		return !(kernel instanceof ScalarLetterKernel);
+	}
+
+	/**
+	 * Computes the masks of one row into masks, reusing the buffers of scratch.
+	 */
+	void rowMasks(Grid grid, int row, Scratch scratch, int[] masks) {
+		int colCount = grid.cols();
+		int rowCount = grid.rows();
+		byte[] letters = scratch.letters;
+		long[] passed = scratch.passed;
+
+		grid.readRow(row, letters);
+		Arrays.fill(passed, 0);
+		kernel.members(letters, colCount, passed);
+		Arrays.fill(masks, 0, colCount, 0);
+
+		for (int w = 0; w < passed.length; w++) {
+			for (long bits = passed[w]; bits != 0; bits &= bits - 1) {
+				int col = w << 6 | Long.numberOfTrailingZeros(bits);
+				char a = letters[col] == (byte) WIDE ? grid.get(row, col) : (char) (letters[col] & 0xFF);
+				if (a > 0xFF) {
+					masks[col] = ALL;
+					continue;
+				}
+				if (!member(starts, a))
+					continue;	// a real WIDE letter that starts no word
+
+				int mask = member(words, a) ? 1 : 0;
+				for (int d = 1; d <= WordPuzzle.DIRECTIONS; d++) {
+					int r = row + WordPuzzle.rowDelta[d];
+					int c = col + WordPuzzle.colDelta[d];
+					if (r < 0 || r >= rowCount || c < 0 || c >= colCount)
+						continue;
+					char b = grid.get(r, c);
+					if (b > 0xFF || (pairs[(a << 8 | b) >>> 6] & (1L << b)) != 0)
+						mask |= 1 << d;
+				}
+				masks[col] = mask;
+			}
+		}
+	}
+
+	/**
+	 * Per thread buffers for rowMasks.
+	 */
+	static class Scratch {
+		Scratch(int cols) {
+			letters = new byte[cols];
+			passed = new long[(cols + 63) >>> 6];
+		}
+
+		final byte[] letters;
+		final long[] passed;
+	}
+
+	private static boolean member(long[] set, char c) {
+		return (set[c >>> 6] & (1L << c)) != 0;
+	}
+
+	/**
+	 * The Vector API kernel if its module is present and the class was compiled, else scalar.
+	 */
+	private static LetterKernel newKernel(long[] set) {
+		if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+			try {
+				return (LetterKernel) Class.forName("VectorLetterKernel").getDeclaredConstructor(long[].class).newInstance((Object) set);
+			}
+			catch (ReflectiveOperationException | LinkageError e) {
+				// fall back to the scalar kernel
+			}
+		}
+		return new ScalarLetterKernel(set);
+	}
+
+	/** Mask of a cell that may start a word in every direction. */
+	static final int ALL = (1 << (WordPuzzle.DIRECTIONS + 1)) - 1;
+	private static final int WIDE = 0xFF;
+
+	private final long[] starts = new long[4];			// letters that begin a word
+	private final long[] words = new long[4];			// letters that are a word
+	private final long[] pairs = new long[256 * 256 / 64];	// bit (a << 8 | b): a then b begins a word
+	private final LetterKernel kernel;
+}
@@ -1,9 +1,16 @@
 import java.io.File;
-import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.InputMismatchException;
+import java.util.List;
 import java.util.Random;
 import java.util.Scanner;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 
 /**
@@ -36,15 +43,36 @@ public class WordPuzzle<AnyType> {
 	 * @return a 2D character array of random characters
 	 */
 	public char[][] generateGrid() {
-		wordGrid = new char[rowCount][colCount];
+		char[][] array = new char[rowCount][colCount];
+		generateGrid(new CharGrid(array));
+		return array;
+	}
+	
+	/**
+	 * Fills a grid with random characters in place and makes it the grid of this WordPuzzle
+	 * @param grid the grid to fill, e.g. a ByteGrid too large for a 2D character array
+	 */
+	public void generateGrid(Grid grid) {
+		generateGrid(grid, new Random());
+	}
+	
+	/**
+	 * Fills a grid with random characters from a fixed seed, so the same grid can be generated again
+	 * @param grid the grid to fill
+	 * @param seed seed of the random characters
+	 */
+	public void generateGrid(Grid grid, long seed) {
+		generateGrid(grid, new Random(seed));
+	}
+	
+	private void generateGrid(Grid grid, Random ran) {
+		setWordGrid(grid);
 		
-		Random ran = new Random();
 		for (int i = 0; i < rowCount; i++) {
 			for (int j = 0; j < colCount; j++) {
-				wordGrid[i][j] = (char)(ran.nextInt(26) + 'a');	//Random lower case alphabets
+				grid.set(i, j, (char)(ran.nextInt(26) + 'a'));	//Random lower case alphabets
 			}
 		}
-		return wordGrid;
 	}
 	
 	/**
@@ -60,15 +88,38 @@ public class WordPuzzle<AnyType> {
 			this.rowCount = array.length;
 			this.colCount = array[0].length;
 		}
-		wordGrid = array;
+		wordGrid = new CharGrid(array);
+	}
+	
+	/**
+	 * Sets the wordGrid to the grid passed as parameter in the method. The grid is not copied.
+	 * @param grid word grid for the WordPuzzle, e.g. a ByteGrid
+	 */
+	public void setWordGrid(Grid grid) {
+		this.rowCount = grid.rows();
+		this.colCount = grid.cols();
+		wordGrid = grid;
 	}
 	
 	/**
 	 * 
 	 * @return 2D character array which is the word grid for WordPuzzle
+	 * @throws UnsupportedOperationException if the grid is not a 2D character array, see getGrid
 	 */
 	
 	public char[][] getWordGrid() {
+		if (wordGrid == null)
+			return null;
+		if (!(wordGrid instanceof CharGrid))
+			throw new UnsupportedOperationException("The grid is a " + wordGrid.getClass().getName() + ", use getGrid()");
+		return ((CharGrid) wordGrid).array();
+	}
+	
+	/**
+	 * 
+	 * @return the word grid for WordPuzzle, whatever its storage
+	 */
+	public Grid getGrid() {
 		return wordGrid;
 	}
 	
@@ -83,10 +134,10 @@ public class WordPuzzle<AnyType> {
 	 * Prints the WordPuzzle character array grid
 	 * @param grid 2D character array to be printed 
 	 */
-	private void printGrid(char[][] grid) {
+	private void printGrid(Grid grid) {
 		for (int i = 0; i < rowCount; i++) {
 			for (int j = 0; j < colCount; j++) {
-				System.out.print(grid[i][j] + " ");
+				System.out.print(grid.get(i, j) + " ");
 			}
 			System.out.println();
 		}
@@ -97,176 +148,101 @@ public class WordPuzzle<AnyType> {
 	 * @param dictionary A hash table consisting of all words from Dictionary text file
 	 * @return A list of all words that matches from grid to dictionary
 	 */
-	public ArrayList<String> findWords(MyHashTable<String> dictionary) {
+	public ArrayList<String> findWords(LookupTable<String> dictionary) {
 		return findWords(wordGrid, dictionary);
 	}
 	
+	/**
+	 * Finds words from the grid that matches with the words in dictionary, and hands each one to the visitor as soon as it is found
+	 * @param dictionary A hash table consisting of all words from Dictionary text file
+	 * @param visitor receives every word with its position, in the order of findWords
+	 * @return false if the visitor stopped the search, else true
+	 */
+	public boolean findWords(LookupTable<String> dictionary, MatchVisitor visitor) {
+		return findWords(wordGrid, dictionary, 0, rowCount, visitor);
+	}
+	
+	/**
+	 * Finds words from the grid that matches with the words in dictionary, unless the grid was solved before
+	 * against the same dictionary version: then its cached words are returned after hashing the grid
+	 * @param dictionary A hash table consisting of all words from Dictionary text file
+	 * @param cache the results of earlier solves
+	 * @param dictionaryVersion identifies the dictionary, e.g. ResultCache.dictionaryVersion of its file
+	 * @return A list of all words that matches from grid to dictionary, which cannot be modified
+	 */
+	public List<String> findWords(LookupTable<String> dictionary, ResultCache cache, long dictionaryVersion) {
+		return cache.get(wordGrid, dictionaryVersion, grid -> findWords(grid, dictionary));
+	}
+	
+	/**
+	 * Finds words from the grid that matches with the words in dictionary, as a lazy stream. The grid is
+	 * searched a row of start cells at a time while the stream is consumed, so a short-circuiting operation
+	 * such as findFirst or limit stops the search, and only the words of one row are held at a time
+	 * @param dictionary A hash table consisting of all words from Dictionary text file
+	 * @return the words found with their positions, in the order of findWords
+	 */
+	public Stream<Match> streamWords(LookupTable<String> dictionary) {
+		return StreamSupport.stream(new MatchSpliterator(new RowScan(wordGrid, dictionary, false, null)), false);
+	}
+	
 	/**
 	 * Finds words from the grid that matches with the words in dictionary
-	 * @param grid 2D character array of WordPuzzle
+	 * @param grid word grid of WordPuzzle
 	 * @param dictionary A hash table consisting of all words from Dictionary text file
 	 * @return  A list of all words that matches from grid to dictionary
 	 */
-	private ArrayList<String> findWords(char[][] grid, MyHashTable<String> dictionary) {
-		
-		ArrayList<String> wordsFound = new ArrayList<String>();
-		
-		for (int rowNoTemp = 0; rowNoTemp < rowCount; rowNoTemp++) {
-			
-			for (int colNoTemp = 0; colNoTemp < colCount; colNoTemp++) {
-				int numberOfChars = 1;
-
-				//while ((colNoTemp + numberOfChars) <= colCount && (rowNoTemp + numberOfChars) <= rowCount) {
-				while (numberOfChars <= colCount || numberOfChars <= rowCount) {
-					// Forward direction					
-					String word = makeString(grid, rowNoTemp, colNoTemp, numberOfChars, forwardDirection);
-					//System.out.println(word);
-					if (!word.equalsIgnoreCase("") && dictionary.contains(word))
-						wordsFound.add(word);
-				
-					
-					if (numberOfChars > 1) {
-						// Bottom right direction
-						word = makeString(grid, rowNoTemp, colNoTemp, numberOfChars, bottomRightDirection);
-						//System.out.println(word);
-						if (dictionary.contains(word))
-							wordsFound.add(word);
-						
-						//Downward direction
-						word = makeString(grid, rowNoTemp, colNoTemp, numberOfChars, downwardDirection);
-						//System.out.println(word);
-						if (dictionary.contains(word))
-							wordsFound.add(word);
-						
-						//Bottom left direction
-						word = makeString(grid, rowNoTemp, colNoTemp, numberOfChars, bottomLeftDirection);
-						//System.out.println(word);
-						if (dictionary.contains(word))
-							wordsFound.add(word);
-						
-						//Backward direction
-						word = makeString(grid, rowNoTemp, colNoTemp, numberOfChars, backwardDirection);
-						//System.out.println(word);
-						if (dictionary.contains(word))
-							wordsFound.add(word);
-						
-						//Top left direction
-						word = makeString(grid, rowNoTemp, colNoTemp, numberOfChars, topLeftDirection);
-						//System.out.println(word);
-						if (dictionary.contains(word))
-							wordsFound.add(word);
-						
-						// Upward direction
-						word = makeString(grid, rowNoTemp, colNoTemp, numberOfChars, upwardDirection);
-						//System.out.println(word);
-						if (dictionary.contains(word))
-							wordsFound.add(word);
-						
-						//Top right direction
-						word = makeString(grid, rowNoTemp, colNoTemp, numberOfChars, topRightDirection);
-						//System.out.println(word);
-						if (dictionary.contains(word))
-							wordsFound.add(word);
-					}
-					numberOfChars++;
-				}
-			}
-		}
-		
+	private ArrayList<String> findWords(Grid grid, LookupTable<String> dictionary) {
+		return findWords(grid, dictionary, 0, rowCount, new ArrayList<String>());
+	}
+	
+	/**
+	 * Finds words that start in rows [rowFrom, rowTo) of the grid. Used to split a scan into row bands.
+	 * @param grid word grid of WordPuzzle
+	 * @param dictionary A hash table consisting of all words from Dictionary text file
+	 * @param rowFrom first row of start cells
+	 * @param rowTo one past the last row of start cells
+	 * @param wordsFound list the matching words are appended to
+	 * @return wordsFound
+	 */
+	ArrayList<String> findWords(Grid grid, LookupTable<String> dictionary, int rowFrom, int rowTo, ArrayList<String> wordsFound) {
+		findWords(grid, dictionary, rowFrom, rowTo, collect(wordsFound));
 		return wordsFound;
 	}
 	
 	/**
-	 * Returns a new String from character sub array
-	 * @param array 2D character array grid of WordPuzzle
-	 * @param rowNo row number of the element from where a new String is to be formed
-	 * @param colNo column number of the element from where a new String is to be formed 
-	 * @param count number of characters or length of the elements of subarray
-	 * @param orientation One out of the eight directions in which to find the subarray
-	 * @return new String from the character sub array starting with the element at rowNo
-	 * 			and colNo, in the given orientation having count number of characters
-	 */
-	private String makeString(char[][] array, int rowNo, int colNo, int count, int orientation) {
-		StringBuffer s = new StringBuffer();
-		int tempCount = count;
-		switch(orientation){
-			case 1:	//forward direction
-				while (count > 0 && colNo < colCount){
-				//while (count > 0 && (count + colNo) < colCount){
-					s.append(array[rowNo][colNo]);
-					colNo += 1;
-					count--;
-				}
-				break;
-				
-			case 2:	//bottom-right direction
-				while (count > 0 && rowNo < rowCount && colNo < colCount){
-			//while (count > 0 && (rowNo + count) < rowCount && (colNo + count) < colCount){
-					s.append(array[rowNo][colNo]);
-					rowNo += 1;
-					colNo += 1;
-					count--;
-				}
-				break;
-			case 3:		//downward direction
-				while (count > 0 && rowNo < rowCount){
-				//while (count > 0 && (count + rowNo) < rowCount){
-					s.append(array[rowNo][colNo]);
-					rowNo += 1;
-					count--;
-				}
-				break;
-			case 4:	//bottom-left direction
-				while (count > 0 && rowNo < rowCount && colNo >= 0){
-				//while (count > 0 && (count + rowNo) < rowCount && (count + colNo) > 0){
-					s.append(array[rowNo][colNo]);
-					rowNo += 1;
-					colNo -= 1;
-					count--;
-				}
-				break;
-			case 5:	//backward direction
-				while (count > 0 && colNo >= 0){
-				//while (count > 0 && (count + colNo) > 0){
-					s.append(array[rowNo][colNo]);
-					colNo -= 1;
-					count--;
-				}
-				break;
-			case 6:	//top-left direction
-				while (count > 0 && rowNo >= 0 && colNo >= 0){
-				//while (count > 0 && (count + rowNo) > 0 && (count + colNo) > 0){
-					s.append(array[rowNo][colNo]);
-					rowNo -= 1;
-					colNo -= 1;
-					count--;
-				}
-				break;
-			case 7:	//upward direction
-				while (count > 0 && rowNo >= 0){
-				//while (count > 0 && (count + rowNo) > 0){
-					s.append(array[rowNo][colNo]);
-					rowNo -= 1;
-					count--;
-				}
-				break;
-			case 8:	//top-right direction
-				while (count > 0 && rowNo >= 0 && colNo < colCount){
-				//while (count > 0 && (count + rowNo) > 0 && (count + colNo) < colCount){
-					s.append(array[rowNo][colNo]);
-					rowNo -= 1;
-					colNo += 1;
-					count--;
-				}
-				break;
-			default:
-				break;
-		}
-		
-		if (s.toString().length() != tempCount)
-			return "";
-		else
-			return s.toString();
+	 * Finds words that start in rows [rowFrom, rowTo) of the grid and hands them to the visitor
+	 * @param grid word grid of WordPuzzle
+	 * @param dictionary A hash table consisting of all words from Dictionary text file
+	 * @param rowFrom first row of start cells
+	 * @param rowTo one past the last row of start cells
+	 * @param visitor receives every word with its position
+	 * @return false if the visitor stopped the search, else true
+	 */
+	boolean findWords(Grid grid, LookupTable<String> dictionary, int rowFrom, int rowTo, MatchVisitor visitor) {
+		RowScan scan = new RowScan(grid, dictionary, false, null);
+		for (int rowNoTemp = rowFrom; rowNoTemp < rowTo; rowNoTemp++)
+			if (!scan.scanRow(rowNoTemp, visitor))
+				return false;
+		return true;
+	}
+	
+	/**
+	 * Reads the next letter of a candidate word into its buffer
+	 * @param grid word grid of WordPuzzle
+	 * @param line buffer holding the first numberOfChars - 1 letters of the candidate
+	 * @param rowNo row number of the first letter
+	 * @param colNo column number of the first letter
+	 * @param numberOfChars length of the candidate once this letter is read
+	 * @param orientation One out of the eight directions in which the candidate is read
+	 * @return false if the letter would lie outside the grid
+	 */
+	private boolean readLetter(Grid grid, char[] line, int rowNo, int colNo, int numberOfChars, int orientation) {
+		int row = rowNo + (numberOfChars - 1) * rowDelta[orientation];
+		int col = colNo + (numberOfChars - 1) * colDelta[orientation];
+		if (row < 0 || row >= rowCount || col < 0 || col >= colCount)
+			return false;
+		line[numberOfChars - 1] = grid.get(row, col);
+		return true;
 	}
 	
 	/**
@@ -274,162 +250,320 @@ public class WordPuzzle<AnyType> {
 	 * @param dictionary A hash table consisting of all words and their prefixes from Dictionary text file
 	 * @return A list of all words that matches from grid to dictionary
 	 */
-	public ArrayList<String> findWordsUsingPrefix(MyHashTable<String> prefixDictionary) {
-		return findWordsUsingPrefix(wordGrid, prefixDictionary);
+	public ArrayList<String> findWordsUsingPrefix(LookupTable<String> prefixDictionary) {
+		return findWordsUsingPrefix(wordGrid, prefixDictionary, null);
+	}
+	
+	/**
+	 * Prefix method that only visits the start cells, and walks the directions, that the filter lets through
+	 * @param prefixDictionary A hash table consisting of all words and their prefixes from Dictionary text file
+	 * @param filter A filter built from the same dictionary
+	 * @return A list of all words that matches from grid to dictionary, the same as without the filter
+	 */
+	public ArrayList<String> findWordsUsingPrefix(LookupTable<String> prefixDictionary, StartCellFilter filter) {
+		return findWordsUsingPrefix(wordGrid, prefixDictionary, filter);
+	}
+	
+	/**
+	 * Prefix method that hands each word to the visitor as soon as it is found
+	 * @param prefixDictionary A hash table consisting of all words and their prefixes from Dictionary text file
+	 * @param filter A filter built from the same dictionary, or null to visit every cell
+	 * @param visitor receives every word with its position, in the order of findWordsUsingPrefix
+	 * @return false if the visitor stopped the search, else true
+	 */
+	public boolean findWordsUsingPrefix(LookupTable<String> prefixDictionary, StartCellFilter filter, MatchVisitor visitor) {
+		return findWordsUsingPrefix(wordGrid, prefixDictionary, filter, 0, rowCount, visitor);
+	}
+	
+	/**
+	 * Prefix method whose result is cached: a grid solved before against the same dictionary version is
+	 * only hashed. findWords and findWordsUsingPrefix find the same words, so they can share a cache and version
+	 * @param prefixDictionary A hash table consisting of all words and their prefixes from Dictionary text file
+	 * @param filter A filter built from the same dictionary, or null to visit every cell
+	 * @param cache the results of earlier solves
+	 * @param dictionaryVersion identifies the dictionary, e.g. ResultCache.dictionaryVersion of its file
+	 * @return A list of all words that matches from grid to dictionary, which cannot be modified
+	 */
+	public List<String> findWordsUsingPrefix(LookupTable<String> prefixDictionary, StartCellFilter filter, ResultCache cache, long dictionaryVersion) {
+		return cache.get(wordGrid, dictionaryVersion, grid -> findWordsUsingPrefix(grid, prefixDictionary, filter));
+	}
+	
+	/**
+	 * Prefix method as a lazy stream, see streamWords
+	 * @param prefixDictionary A hash table consisting of all words and their prefixes from Dictionary text file
+	 * @param filter A filter built from the same dictionary, or null to visit every cell
+	 * @return the words found with their positions, in the order of findWordsUsingPrefix
+	 */
+	public Stream<Match> streamWordsUsingPrefix(LookupTable<String> prefixDictionary, StartCellFilter filter) {
+		return StreamSupport.stream(new MatchSpliterator(new RowScan(wordGrid, prefixDictionary, true, filter)), false);
 	}
 	
 	/**
 	 * Finds words from the grid that matches with the words in dictionary. If prefix of a word is not found, then that word in not searched again
-	 * @param grid 2D character array of WordPuzzle
+	 * @param grid word grid of WordPuzzle
 	 * @param dictionary A hash table consisting of all words and their prefixes from Dictionary text file
+	 * @param filter A filter of start cells, or null to visit every cell
 	 * @return A list of all words that matches from grid to dictionary
 	 */
-	private ArrayList<String> findWordsUsingPrefix(char[][] grid, MyHashTable<String> dictionary) {
+	private ArrayList<String> findWordsUsingPrefix(Grid grid, LookupTable<String> dictionary, StartCellFilter filter) {
+		return findWordsUsingPrefix(grid, dictionary, filter, 0, rowCount, new ArrayList<String>());
+	}
+	
+	/**
+	 * Prefix method for the start cells in rows [rowFrom, rowTo) of the grid. Used to split a scan into row bands.
+	 * @param grid word grid of WordPuzzle
+	 * @param dictionary A hash table consisting of all words and their prefixes from Dictionary text file
+	 * @param filter A filter of start cells, or null to visit every cell
+	 * @param rowFrom first row of start cells
+	 * @param rowTo one past the last row of start cells
+	 * @param wordsFound list the matching words are appended to
+	 * @return wordsFound
+	 */
+	ArrayList<String> findWordsUsingPrefix(Grid grid, LookupTable<String> dictionary, StartCellFilter filter, int rowFrom, int rowTo, ArrayList<String> wordsFound) {
+		findWordsUsingPrefix(grid, dictionary, filter, rowFrom, rowTo, collect(wordsFound));
+		return wordsFound;
+	}
+	
+	/**
+	 * Prefix method for the start cells in rows [rowFrom, rowTo) of the grid, handing the words to the visitor
+	 * @param grid word grid of WordPuzzle
+	 * @param dictionary A hash table consisting of all words and their prefixes from Dictionary text file
+	 * @param filter A filter of start cells, or null to visit every cell
+	 * @param rowFrom first row of start cells
+	 * @param rowTo one past the last row of start cells
+	 * @param visitor receives every word with its position
+	 * @return false if the visitor stopped the search, else true
+	 */
+	boolean findWordsUsingPrefix(Grid grid, LookupTable<String> dictionary, StartCellFilter filter, int rowFrom, int rowTo, MatchVisitor visitor) {
+		RowScan scan = new RowScan(grid, dictionary, true, filter);
+		for (int rowNoTemp = rowFrom; rowNoTemp < rowTo; rowNoTemp++)
+			if (!scan.scanRow(rowNoTemp, visitor))
+				return false;
+		return true;
+	}
+	
+	/**
+	 * @param wordsFound list to append the words to
+	 * @return a visitor that appends every word to wordsFound and never stops
+	 */
+	private static MatchVisitor collect(ArrayList<String> wordsFound) {
+		return (word, row, col, direction) -> {
+			wordsFound.add(word);
+			return true;
+		};
+	}
+	
+	/**
+	 * One scan of a grid, made a row of start cells at a time, with the buffers it reuses from row to row
+	 */
+	private class RowScan {
+		/**
+		 * @param grid word grid of WordPuzzle
+		 * @param dictionary the words, and also their prefixes if usePrefix is true
+		 * @param usePrefix true for the prefix method, false for findWords
+		 * @param filter A filter of start cells for the prefix method, or null to visit every cell
+		 */
+		RowScan(Grid grid, LookupTable<String> dictionary, boolean usePrefix, StartCellFilter filter) {
+			this.grid = grid;
+			this.dictionary = dictionary;
+			this.usePrefix = usePrefix;
+			this.filter = filter;
+			masks = new int[colCount];
+			scratch = filter == null ? null : new StartCellFilter.Scratch(colCount);
+			if (filter == null)
+				Arrays.fill(masks, StartCellFilter.ALL);
+			//The letters read so far in each direction, so every candidate is looked up straight from its buffer
+			lines = new char[DIRECTIONS + 1][Math.max(rowCount, colCount)];
+		}
+		
+		/**
+		 * Finds the words that start in one row
+		 * @param rowNo the row of start cells
+		 * @param visitor receives every word with its position
+		 * @return false if the visitor stopped the search, else true
+		 */
+		boolean scanRow(int rowNo, MatchVisitor visitor) {
+			return usePrefix ? scanRowUsingPrefix(rowNo, visitor) : scanRowWords(rowNo, visitor);
+		}
 		
-		ArrayList<String> wordsFound = new ArrayList<String>();
+		private boolean scanRowWords(int rowNoTemp, MatchVisitor visitor) {
+			for (int colNoTemp = 0; colNoTemp < colCount; colNoTemp++) {
+				char first = grid.get(rowNoTemp, colNoTemp);
+				for (int d = 1; d <= DIRECTIONS; d++)
+					lines[d][0] = first;
+				
+				//A single letter is only checked once, in the forward direction
+				if (dictionary.contains(lines[forwardDirection], 0, 1)
+						&& !visitor.visit(String.valueOf(first), rowNoTemp, colNoTemp, forwardDirection))
+					return false;
+				
+				//Bit d is set while direction d is still inside the grid
+				int open = (1 << (DIRECTIONS + 1)) - 2;
+				for (int numberOfChars = 2; open != 0; numberOfChars++) {
+					for (int d = 1; d <= DIRECTIONS; d++) {
+						if ((open & (1 << d)) == 0)
+							continue;
+						if (!readLetter(grid, lines[d], rowNoTemp, colNoTemp, numberOfChars, d)) {
+							open &= ~(1 << d);
+							continue;
+						}
+						if (dictionary.contains(lines[d], 0, numberOfChars)
+								&& !visitor.visit(new String(lines[d], 0, numberOfChars), rowNoTemp, colNoTemp, d))
+							return false;
+					}
+				}
+			}
+			return true;
+		}
 		
-		for (int rowNoTemp = 0; rowNoTemp < rowCount; rowNoTemp++) {
+		private boolean scanRowUsingPrefix(int rowNoTemp, MatchVisitor visitor) {
+			if (filter != null)
+				filter.rowMasks(grid, rowNoTemp, scratch, masks);
 			
 			for (int colNoTemp = 0; colNoTemp < colCount; colNoTemp++) {
-				int numberOfChars = 1;
+				int mask = masks[colNoTemp];
+				if (mask == 0)
+					continue;	//No word starts here in any direction
 				
-				boolean moveFwd = true;
-				boolean moveBottomRight = true;
-				boolean moveDown = true;
-				boolean moveBottomLeft = true;
-				boolean moveBack = true;
-				boolean moveTopLeft = true;
-				boolean moveUp = true;
-				boolean moveTopRight = true;
+				char first = grid.get(rowNoTemp, colNoTemp);
+				for (int d = 1; d <= DIRECTIONS; d++)
+					lines[d][0] = first;
 				
+				//If a letter is not found in the dictionary prefixes, then no need to check for words that start with this letter in any orientation
+				String val = dictionary.get(lines[forwardDirection], 0, 1);
+				if (val == null)
+					continue;
+				if (val.equalsIgnoreCase(WORD) && !visitor.visit(String.valueOf(first), rowNoTemp, colNoTemp, forwardDirection))
+					return false;
 				
-				//while ((colNoTemp + numberOfChars) <= colCount && (rowNoTemp + numberOfChars) <= rowCount) {
-				while (numberOfChars <= colCount || numberOfChars <= rowCount) {
-					// Forward direction
-					String word = null;
-					String val = null;
-					
-					if (moveFwd) {
-						word = makeString(grid, rowNoTemp, colNoTemp, numberOfChars, forwardDirection);
-						//System.out.println(word);
-						val = dictionary.get(word);
-						if (word != null && !word.equalsIgnoreCase("") && (val != null) && val.equalsIgnoreCase(WORD) ) {
-							wordsFound.add(word);
+				//Bit d is set while direction d may still lead to a word
+				int move = mask & ~1;
+				for (int numberOfChars = 2; move != 0; numberOfChars++) {
+					for (int d = 1; d <= DIRECTIONS; d++) {
+						if ((move & (1 << d)) == 0)
+							continue;
+						if (!readLetter(grid, lines[d], rowNoTemp, colNoTemp, numberOfChars, d)) {
+							move &= ~(1 << d);
+							continue;
 						}
-						else if (word != null && !word.equalsIgnoreCase("") && (val == null)) {	
-							moveFwd = false;
-						}	
+						val = dictionary.get(lines[d], 0, numberOfChars);
+						if (val == null)
+							move &= ~(1 << d);	//Neither a word nor a prefix, so stop extending this direction
+						else if (val.equalsIgnoreCase(WORD) && !visitor.visit(new String(lines[d], 0, numberOfChars), rowNoTemp, colNoTemp, d))
+							return false;
 					}
-					
-					//If a letter is not found in the dictionary prefixes, then no need to check for words that start with this letter in any orientation 
-					if (numberOfChars == 1 && !moveFwd) {
-						numberOfChars += colCount;
-						break;
-					}
-					
-					if (numberOfChars > 1) {
-						// Bottom right direction
-							if (moveBottomRight) {
-								word = makeString(grid, rowNoTemp, colNoTemp, numberOfChars, bottomRightDirection);
-								//System.out.println(word);
-								
-								val = dictionary.get(word);
-								if (word != null && !word.equalsIgnoreCase("") && (val != null) && val.equalsIgnoreCase(WORD) ) {
-									wordsFound.add(word);
-								}
-								else if (word != null && !word.equalsIgnoreCase("") && (val == null)) {	
-									moveBottomRight = false;
-								}
-								
-							}
-							
-							//Downward direction
-							if (moveDown) {
-								word = makeString(grid, rowNoTemp, colNoTemp, numberOfChars, downwardDirection);
-								//System.out.println(word);
-								
-								val = dictionary.get(word);
-								if (word != null && !word.equalsIgnoreCase("") && (val != null) && val.equalsIgnoreCase(WORD) ) {
-									wordsFound.add(word);
-								}
-								else if (word != null && !word.equalsIgnoreCase("") && (val == null)) {	
-									moveDown = false;
-								}
-							}
-							
-							
-							//Bottom left direction
-							if (moveBottomLeft) {
-								word = makeString(grid, rowNoTemp, colNoTemp, numberOfChars, bottomLeftDirection);
-								//System.out.println(word);
-								
-								val = dictionary.get(word);
-								if (word != null && !word.equalsIgnoreCase("") && (val != null) && val.equalsIgnoreCase(WORD) ) {
-									wordsFound.add(word);
-								}
-								else if (word != null && !word.equalsIgnoreCase("") && (val == null)) {	
-									moveBottomLeft = false;
-								}
-							}
-							
-							//Backward direction
-							if (moveBack) {
-								word = makeString(grid, rowNoTemp, colNoTemp, numberOfChars, backwardDirection);
-							//System.out.println(word);
-								val = dictionary.get(word);
-								if (word != null && !word.equalsIgnoreCase("") && (val != null) && val.equalsIgnoreCase(WORD) ) {
-									wordsFound.add(word);
-								}
-								else if (word != null && !word.equalsIgnoreCase("") && (val == null)) {	
-									moveBack = false;
-								}
-							}
-							
-							//Top left direction
-							if (moveTopLeft) {
-								word = makeString(grid, rowNoTemp, colNoTemp, numberOfChars, topLeftDirection);
-								//System.out.println(word);
-								val = dictionary.get(word);
-								if (word != null && !word.equalsIgnoreCase("") && (val != null) && val.equalsIgnoreCase(WORD) ) {
-									wordsFound.add(word);
-								}
-								else if (word != null && !word.equalsIgnoreCase("") && (val == null)) {	
-									moveTopLeft = false;
-								}
-							}
-							
-							// Upward direction
-							if (moveUp) {
-								word = makeString(grid, rowNoTemp, colNoTemp, numberOfChars, upwardDirection);
-								val = dictionary.get(word);
-								if (word != null && !word.equalsIgnoreCase("") && (val != null) && val.equalsIgnoreCase(WORD) ) {
-									wordsFound.add(word);
-								}
-								else if (word != null && !word.equalsIgnoreCase("") && (val == null)) {	
-									moveUp = false;
-								}
-							}
-							
-							//Top right direction
-							if (moveTopRight) {
-								word = makeString(grid, rowNoTemp, colNoTemp, numberOfChars, topRightDirection);
-								val = dictionary.get(word);
-								if (word != null && !word.equalsIgnoreCase("") && (val != null) && val.equalsIgnoreCase(WORD) ) {
-									wordsFound.add(word);
-								}
-								else if (word != null && !word.equalsIgnoreCase("") && (val == null)) {	
-									moveTopRight = false;
-								}
-							}
-						//}
-					}
-					numberOfChars++;
 				}
 			}
+			return true;
 		}
 		
-		return wordsFound;
-	}	
+		private final Grid grid;
+		private final LookupTable<String> dictionary;
+		private final boolean usePrefix;
+		private final StartCellFilter filter;
+		private final StartCellFilter.Scratch scratch;
+		private final int[] masks;
+		private final char[][] lines;
+	}
+	
+	/**
+	 * Source of streamWords: scans the next row whenever the words of the previous one are used up
+	 */
+	private class MatchSpliterator implements Spliterator<Match> {
+		MatchSpliterator(RowScan scan) {
+			this.scan = scan;
+		}
+		
+		public boolean tryAdvance(Consumer<? super Match> action) {
+			while (pending.isEmpty()) {
+				if (nextRow >= rowCount)
+					return false;
+				scan.scanRow(nextRow++, (word, row, col, direction) -> pending.add(new Match(word, row, col, direction)));
+			}
+			action.accept(pending.poll());
+			return true;
+		}
+		
+		/**
+		 * Hands the rest of the words straight to the action, without queueing them
+		 */
+		public void forEachRemaining(Consumer<? super Match> action) {
+			while (!pending.isEmpty())
+				action.accept(pending.poll());
+			for (; nextRow < rowCount; nextRow++)
+				scan.scanRow(nextRow, (word, row, col, direction) -> {
+					action.accept(new Match(word, row, col, direction));
+					return true;
+				});
+		}
+		
+		public Spliterator<Match> trySplit() {
+			return null;
+		}
+		
+		public long estimateSize() {
+			return Long.MAX_VALUE;
+		}
+		
+		public int characteristics() {
+			return ORDERED | NONNULL;
+		}
+		
+		private final RowScan scan;
+		private final ArrayDeque<Match> pending = new ArrayDeque<Match>();	//Words of the last row scanned, not yet consumed
+		private int nextRow;
+	}
+	
+	/**
+	 * Finds only the k longest distinct words of the grid, and stops as soon as no word left to find could be longer
+	 * @param prefixDictionary A hash table consisting of all words and their prefixes from Dictionary text file
+	 * @param maxWordLength length of the longest word of the dictionary, e.g. DictionaryLoader.getMaxWordLength()
+	 * @param k number of words wanted
+	 * @return up to k words with their positions, longest first
+	 */
+	public List<Match> findLongestWords(LookupTable<String> prefixDictionary, int maxWordLength, int k) {
+		return new LongestWordsSolver(prefixDictionary, maxWordLength).find(wordGrid, k);
+	}
+	
+	/**
+	 * Finds words from the grid that matches with the words in dictionary by extending each direction
+	 * one letter at a time with a DAWG cursor. No string is built unless a word is found.
+	 * @param dictionary A DAWG of all words from Dictionary text file
+	 * @return A list of all words that matches from grid to dictionary, in the same order as findWords
+	 */
+	public ArrayList<String> findWordsUsingCursor(DawgDictionary dictionary) {
+		return new GridScanner(dictionary).findWords(wordGrid);
+	}
+	
+	/**
+	 * Finds words from the grid that can be spelled along any path of adjacent cells that uses no cell twice, as in Boggle
+	 * @param solver A PathSolver built on a DAWG of all words from Dictionary text file
+	 * @return every distinct word found, in ascending order
+	 */
+	public ArrayList<String> findWordsAlongPaths(PathSolver solver) {
+		return solver.findWords(wordGrid);
+	}
+	
+	/**
+	 * Finds words from the grid that matches with the words in dictionary by streaming every row, column and
+	 * diagonal, in both directions, through an Aho-Corasick automaton of the dictionary
+	 * @param automaton An automaton built from all words of Dictionary text file
+	 * @return A list of the same words as findWords, grouped line by line
+	 */
+	public ArrayList<String> findWordsUsingAutomaton(AhoCorasick automaton) {
+		return automaton.findWords(wordGrid);
+	}
+	
+	/**
+	 * Finds words from the grid like findWordsUsingAutomaton, and keeps them up to date while cells
+	 * of the grid are edited through the returned solver
+	 * @param automaton An automaton built from all words of Dictionary text file
+	 * @return A solver whose setCell and setCells edit this puzzle's grid
+	 */
+	public IncrementalSolver findWordsIncrementally(AhoCorasick automaton) {
+		return new IncrementalSolver(wordGrid, automaton);
+	}
+	
 	/**
 	 * 
 	 * @param wordList The list of words found in dictionary to be printed
@@ -446,9 +580,9 @@ public class WordPuzzle<AnyType> {
 	private int rowCount = 0;
 	private int colCount = 0;
 	private static final int DEFAULT_GRID_SIZE = 16;
-	private char[][] wordGrid;
+	private Grid wordGrid;
 	
-	private static final int forwardDirection = 1;
+	static final int forwardDirection = 1;
 	private static final int bottomRightDirection = 2;
 	private static final int downwardDirection = 3;
 	private static final int bottomLeftDirection = 4;
@@ -456,9 +590,24 @@ public class WordPuzzle<AnyType> {
 	private static final int topLeftDirection = 6;
 	private static final int upwardDirection = 7;
 	private static final int topRightDirection = 8;
+	static final int DIRECTIONS = 8;
 	
-	private final String WORD = "w";
-	private final String PREFIX = "p";
+	//Name of each direction, indexed by the direction constants above
+	static final String[] directionNames = { null, "forward", "bottom right", "downward", "bottom left", "backward", "top left", "upward", "top right" };
+	
+	//Row and column step of each direction, indexed by the direction constants above
+	static final int[] rowDelta = { 0, 0, 1, 1, 1, 0, -1, -1, -1 };
+	static final int[] colDelta = { 0, 1, 1, 0, -1, -1, -1, 0, 1 };
+	
+	static final String WORD = "w";
+	static final String PREFIX = "p";
+	private static final String DICTIONARY_FILE = "src\\Dictionary.txt";
+	private static final String DICTIONARY_IMAGE_FILE = "src\\Dictionary.img";
+	private static final double BLOOM_FALSE_POSITIVE_RATE = 0.01;
+	private static final double PREFIX_TABLE_LOAD = 0.85;	//Robin Hood keeps probes short at this load
+	private static final int LONGEST_WORDS = 10;
+	private static final long RESULT_CACHE_BYTES = 64L << 20;
+	private static final int PATH_MIN_WORD_LENGTH = 3;	//As in Boggle
 	
 	
 	public static void main(String[] args) {
@@ -476,29 +625,23 @@ public class WordPuzzle<AnyType> {
 			WordPuzzle<String> puzzle = new WordPuzzle<String>(row, col);
 			puzzle.generateGrid();
 			
-			long startTime = System.currentTimeMillis();
-			MyHashTable<String> dictionary = new MyHashTable<String>();
-			
-			sc = new Scanner(new File("src\\Dictionary.txt"));
-			//sc = new Scanner(new File("src\\Dictionary_Tiny.txt"));
-			
-			while (sc.hasNext()){
-				//Load data to the MyHashTable
-				dictionary.insert(sc.next());
-			}
-			long endTime = System.currentTimeMillis();
-			System.out.println("Dictionary size : " + dictionary.size() + ". It took " + (endTime - startTime) + " ms for the data in text file to load into the MyHashTable");
+			DictionaryLoader loader = new DictionaryLoader();
+			//Most lookups of findWords are misses, which the Bloom filter answers without probing the table
+			BloomFilteredTable<String> dictionary = loader.loadFilteredDictionary(new File(DICTIONARY_FILE), MyHashTable.COMPACT, BLOOM_FALSE_POSITIVE_RATE);
+			//BloomFilteredTable<String> dictionary = loader.loadFilteredDictionary(new File("src\\Dictionary_Tiny.txt"), MyHashTable.COMPACT, BLOOM_FALSE_POSITIVE_RATE);
+			System.out.println("Dictionary size : " + loader.getWordCount() + ". It took " + loader.getLoadMillis() + " ms (" + (long) loader.getWordsPerSecond() + " words/s) for the data in text file to load into the MyHashTable");
 			
 			System.out.println("\nData loaded. Here's your " + row + " x " + col + " word puzzle grid. Let's start playing!!!");
 			
 			//Print grid here
 			puzzle.printGrid();
 			
-			startTime =  System.currentTimeMillis();
+			long startTime =  System.currentTimeMillis();
 			ArrayList<String> matchingWords = puzzle.findWords(dictionary);
-			endTime =  System.currentTimeMillis();
+			long endTime =  System.currentTimeMillis();
 			
 			System.out.println("\nIt took " + (endTime - startTime) + " ms to complete searching words");
+			System.out.println("Dictionary lookups : " + dictionary);
 			
 			System.out.println("\nMatching words from grid found in dictionary");
 			//print the words found
@@ -506,40 +649,83 @@ public class WordPuzzle<AnyType> {
 			System.out.println("Total count of matching words : " + count);
 
 			/** Prefix method begins here **/
-			startTime = System.currentTimeMillis();
-			MyHashTable<String> prefixDictionary = new MyHashTable<String>();
-			
-
-			sc = new Scanner(new File("src\\Dictionary.txt"));
-			
-			//In the prefix method of hashing data, key is prefixes and value is their corresponding words 
-			while (sc.hasNext()){
-				//Load data to the MyHashTable
-				String dictionaryWord = sc.next();
-				//Assumption: Words that are a part of prefix of some other word appear before the word in dictionary.
-				// E.g.: bar as a word appears before bark in dictionary. So prefix 'bar' is stored as word, instead of prefix.
-				for (int i = 1; i <= (dictionaryWord.length() - 1); i++) {
-					String isWord = prefixDictionary.get(dictionaryWord.substring(0, i)); 
-					if ((isWord != null && !isWord.equalsIgnoreCase(puzzle.WORD)) || isWord == null)
-						prefixDictionary.put(dictionaryWord.substring(0, i), puzzle.PREFIX);
-				}
-				prefixDictionary.put(dictionaryWord, puzzle.WORD);
-			}
-			endTime = System.currentTimeMillis();
-			System.out.println("Prefix dictionary size : " + prefixDictionary.size() + ". It took " + (endTime - startTime) + " ms for the data in text file to load into the MyHashTable");
+			//In the prefix method of hashing data, key is prefixes and value is WORD or PREFIX
+			MyHashTable<String> prefixDictionary = loader.loadPrefixDictionary(new File(DICTIONARY_FILE),
+					MyHashTable.COMPACT | MyHashTable.ROBIN_HOOD, PREFIX_TABLE_LOAD);
+			System.out.println("Prefix dictionary size : " + prefixDictionary.size() + ". It took " + loader.getLoadMillis() + " ms (" + (long) loader.getWordsPerSecond() + " words/s) for the data in text file to load into the MyHashTable");
 			
+			StartCellFilter startCells = new StartCellFilter(prefixDictionary);
 			startTime =  System.currentTimeMillis();
-			ArrayList<String> matchingWordsPrefixMethod = puzzle.findWordsUsingPrefix(prefixDictionary);
+			ArrayList<String> matchingWordsPrefixMethod = puzzle.findWordsUsingPrefix(prefixDictionary, startCells);
 			endTime =  System.currentTimeMillis();
 			
 			System.out.println("\nIt took " + (endTime - startTime) + " ms to complete searching words using prefix method");
+			//Counting probes slows lookups down, so the counts come from a second, untimed search
+			prefixDictionary.setStatsEnabled(true);
+			puzzle.findWordsUsingPrefix(prefixDictionary, startCells);
+			System.out.println("Prefix dictionary lookups : " + prefixDictionary.getStats());
+			prefixDictionary.setStatsEnabled(false);
 			
 			System.out.println("\nMatching words from grid found in dictionary using prefix method");
 			//print the words found
 			count = print(matchingWordsPrefixMethod);		
 			System.out.println("Total count of matching words : " + count);
+			
+			//Clients often send the same grid again; a cached repeat only hashes the grid
+			ResultCache resultCache = new ResultCache(RESULT_CACHE_BYTES);
+			long dictionaryVersion = ResultCache.dictionaryVersion(new File(DICTIONARY_FILE));
+			resultCache.put(puzzle.getGrid(), dictionaryVersion, matchingWordsPrefixMethod);
+			long startNanos = System.nanoTime();
+			List<String> repeatedWords = puzzle.findWordsUsingPrefix(prefixDictionary, startCells, resultCache, dictionaryVersion);
+			long endNanos = System.nanoTime();
+			System.out.println("\nSolving the same grid again took " + String.format("%.3f", (endNanos - startNanos) / 1e6) + " ms (" + repeatedWords.size() + " words). Result cache : " + resultCache);
+			
+			startTime =  System.currentTimeMillis();
+			List<Match> longestWords = puzzle.findLongestWords(prefixDictionary, loader.getMaxWordLength(), LONGEST_WORDS);
+			endTime =  System.currentTimeMillis();
+			System.out.println("\nThe " + LONGEST_WORDS + " longest words, found in " + (endTime - startTime) + " ms : " + longestWords);
+
+			/** DAWG method begins here **/
+			startTime = System.currentTimeMillis();
+			DawgDictionary dawg = DawgDictionary.load(new File(DICTIONARY_FILE));
+			endTime = System.currentTimeMillis();
+			System.out.println("\nDAWG dictionary size : " + dawg.size() + " words in " + dawg.stateCount() + " states and " + dawg.edgeCount() + " edges. It took " + (endTime - startTime) + " ms for the data in text file to load into the DawgDictionary");
+
+			startTime =  System.currentTimeMillis();
+			ArrayList<String> matchingWordsDawgMethod = puzzle.findWordsUsingCursor(dawg);
+			endTime =  System.currentTimeMillis();
+
+			System.out.println("\nIt took " + (endTime - startTime) + " ms to complete searching words using the DAWG");
+			System.out.println("Total count of matching words : " + matchingWordsDawgMethod.size());
+			
+			//Streamed through a bit set over the DAWG's word ids, so no list of the words is kept
+			DistinctMatches distinctWords = new DistinctMatches(dawg);
+			puzzle.findWordsUsingPrefix(dawg, null, distinctWords);
+			System.out.println("Distinct matching words : " + distinctWords.count());
+			
+			/** Path method begins here **/
+			try (PathSolver pathSolver = new PathSolver(dawg, PATH_MIN_WORD_LENGTH)) {
+				startTime =  System.currentTimeMillis();
+				ArrayList<String> matchingWordsPathMethod = puzzle.findWordsAlongPaths(pathSolver);
+				endTime =  System.currentTimeMillis();
+				System.out.println("\nIt took " + (endTime - startTime) + " ms to find the words of " + PATH_MIN_WORD_LENGTH + " or more letters along paths of adjacent cells");
+				System.out.println("Total count of distinct matching words : " + matchingWordsPathMethod.size());
+			}
+
+			/** Dictionary image method begins here **/
+			startTime = System.currentTimeMillis();
+			DictionaryImage image = DictionaryImage.openOrBuild(new File(DICTIONARY_FILE), new File(DICTIONARY_IMAGE_FILE));
+			endTime = System.currentTimeMillis();
+			System.out.println("\nDictionary image size : " + image.size() + ". It took " + (endTime - startTime) + " ms to open the DictionaryImage");
+
+			startTime =  System.currentTimeMillis();
+			ArrayList<String> matchingWordsImageMethod = puzzle.findWordsUsingPrefix(image);
+			endTime =  System.currentTimeMillis();
+
+			System.out.println("\nIt took " + (endTime - startTime) + " ms to complete searching words using the dictionary image");
+			System.out.println("Total count of matching words : " + matchingWordsImageMethod.size());
 		}
-		catch (FileNotFoundException e) {
+		catch (IOException e) {
 			e.printStackTrace();
 		}
 		catch (InputMismatchException e) {
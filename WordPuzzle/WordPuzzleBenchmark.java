@@ -0,0 +1,611 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+
+/**
+ *
+ * @author Gayatri
+ * Benchmarks of dictionary loading, MyHashTable and the grid solvers, in the style of JMH.
+ *
+ * Every benchmark runs a number of warmup iterations and then measured iterations. An
+ * iteration repeats the operation until it has run for the iteration time (at least once)
+ * and scores the average time per operation. The score is the mean over the measured
+ * iterations, with its 99.9% confidence interval. Like the JMH gc profiler, each score is
+ * followed by the bytes allocated per operation, the allocation rate, and the number and
+ * time of garbage collections during the measured iterations.
+ *
+ * Grids are generated from a fixed seed, so every run solves the same grids.
+ *
+ * Usage: java -Xms2g -Xmx2g WordPuzzleBenchmark [options] [regex]
+ *   -d file         dictionary file (default Dictionary.txt)
+ *   -sizes a,b,...  grid sizes (default 16,64,256,1024,4000)
+ *   -wi n           warmup iterations (default 2)
+ *   -i n            measured iterations (default 5)
+ *   -t ms           time of one iteration (default 1000)
+ *   -seed n         seed of the grids (default 42)
+ *   -csv file       also writes the results as CSV, e.g. to compare runs
+ *   regex           only runs the benchmarks whose name and parameters match
+ *
+ * findWords is only run on grids up to 256 x 256. findWordsUsingPrefix on a 4000 x 4000
+ * grid takes about 40 s per solve; leave it out with -sizes for quick runs.
+ *
+ * The lookup benchmarks time every lookup on its own, like the JMH SampleTime mode, and
+ * print the percentiles of the latency after the mean, to compare the tail of
+ * MyHashTable with those of CuckooHashTable and PerfectHashTable. Each time includes
+ * one System.nanoTime call.
+ *
+ * The PathSolver benchmark is a throughput score, in 100 x 100 grids solved per second,
+ * on one thread and on every processor.
+ *
+ */
+
+public class WordPuzzleBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		File dictionaryFile = new File("Dictionary.txt");
+		int[] sizes = { 16, 64, 256, 1024, 4000 };
+		int warmups = 2;
+		int iterations = 5;
+		long iterationMillis = 1000;
+		long seed = 42;
+		File csv = null;
+		Pattern filter = null;
+
+		for (int i = 0; i < args.length; i++) {
+			switch (args[i]) {
+			case "-d":		dictionaryFile = new File(args[++i]); break;
+			case "-wi":		warmups = Integer.parseInt(args[++i]); break;
+			case "-i":		iterations = Integer.parseInt(args[++i]); break;
+			case "-t":		iterationMillis = Long.parseLong(args[++i]); break;
+			case "-seed":	seed = Long.parseLong(args[++i]); break;
+			case "-csv":	csv = new File(args[++i]); break;
+			case "-sizes":
+				String[] parts = args[++i].split(",");
+				sizes = new int[parts.length];
+				for (int j = 0; j < parts.length; j++)
+					sizes[j] = Integer.parseInt(parts[j].trim());
+				break;
+			default:
+				filter = Pattern.compile(args[i]);
+			}
+		}
+
+		WordPuzzleBenchmark benchmark = new WordPuzzleBenchmark(warmups, iterations, iterationMillis, filter);
+		System.out.println("# " + System.getProperty("java.vm.name") + " " + System.getProperty("java.version")
+				+ ", " + Runtime.getRuntime().availableProcessors() + " processors, max heap " + (Runtime.getRuntime().maxMemory() >> 20) + " MB");
+		System.out.println("# " + warmups + " warmup and " + iterations + " measured iterations of " + iterationMillis + " ms; allocation counted on "
+				+ (TOTAL_ALLOCATED_BYTES != null ? "all threads" : "the benchmark thread only"));
+		System.out.println();
+		System.out.println(String.format(ROW_FORMAT, "Benchmark", "Params", "Cnt", "Score", "", "Error", "Units"));
+
+		benchmark.loadBenchmarks(dictionaryFile);
+		benchmark.tableBenchmarks(dictionaryFile);
+		benchmark.lookupBenchmarks(dictionaryFile, seed);
+		benchmark.gridBenchmarks(dictionaryFile, sizes, seed);
+		benchmark.pathBenchmarks(dictionaryFile, seed);
+
+		if (csv != null)
+			benchmark.writeCsv(csv);
+	}
+
+	/**
+	 * An operation to measure. Its result is consumed so the JIT cannot drop the work.
+	 */
+	public interface Operation {
+		Object run() throws Exception;
+	}
+
+	/**
+	 * One lookup of the keys numbered 0 to keys - 1, for sample.
+	 */
+	public interface Lookup {
+		boolean lookup(int key);
+	}
+
+	/**
+	 * Construct a benchmark runner.
+	 * @param warmups warmup iterations of every benchmark
+	 * @param iterations measured iterations of every benchmark
+	 * @param iterationMillis time of one iteration
+	 * @param filter runs only benchmarks whose name and parameters it finds, or all if null
+	 */
+	public WordPuzzleBenchmark(int warmups, int iterations, long iterationMillis, Pattern filter) {
+		if (iterations < 1)
+			throw new IllegalArgumentException("At least one measured iteration is needed: " + iterations);
+		this.warmups = warmups;
+		this.iterations = iterations;
+		this.iterationNanos = iterationMillis * 1000000;
+		this.filter = filter;
+	}
+
+	/**
+	 * Time to load the word table and the prefix table, as WordPuzzle.main does.
+	 */
+	public void loadBenchmarks(File dictionaryFile) throws Exception {
+		DictionaryLoader loader = new DictionaryLoader();
+		run("load.dictionary", "", "ms/op", 1, () -> loader.loadDictionary(dictionaryFile, MyHashTable.COMPACT));
+		run("load.prefixDictionary", "", "ms/op", 1,
+				() -> loader.loadPrefixDictionary(dictionaryFile, MyHashTable.COMPACT | MyHashTable.ROBIN_HOOD, 0.85));
+	}
+
+	/**
+	 * Insert, hit and miss lookups of MyHashTable at different load factors, per key.
+	 * Insert grows the table from the default size, rehashes included, and build uses a
+	 * MyHashTable.Builder. The lookups use a table presized to the load factor, so the
+	 * load is the one named.
+	 */
+	public void tableBenchmarks(File dictionaryFile) throws Exception {
+		String[] words = new DictionaryLoader().readWords(dictionaryFile);
+		HashSet<String> wordSet = new HashSet<String>();
+		for (String word : words)
+			wordSet.add(word);
+		ArrayList<String> absent = new ArrayList<String>();
+		for (String word : words) {
+			String miss = new StringBuilder(word).reverse().append('q').toString();
+			if (!wordSet.contains(miss))
+				absent.add(miss);
+		}
+		String[] misses = absent.toArray(new String[absent.size()]);
+		// new Strings, so that lookups hash and compare them instead of finding the same objects
+		String[] hits = new String[words.length];
+		for (int i = 0; i < words.length; i++)
+			hits[i] = new String(words[i].toCharArray());
+
+		int[] options = { MyHashTable.COMPACT, MyHashTable.COMPACT | MyHashTable.ROBIN_HOOD, MyHashTable.COMPACT | MyHashTable.INCREMENTAL };
+		String[] optionNames = { "linear", "robinHood", "incremental" };
+		for (int o = 0; o < options.length; o++) {
+			for (double load : LOAD_FACTORS) {
+				int option = options[o];
+				String params = optionNames[o] + " load=" + load;
+
+				run("table.insert", params, "ns/op", words.length, () -> {
+					MyHashTable<String> table = new MyHashTable<String>(MyHashTable.DEFAULT_TABLE_SIZE, option, load);
+					for (String word : words)
+						table.put(word, WordPuzzle.WORD);
+					return table;
+				});
+
+				run("table.build", params, "ns/op", words.length, () -> {
+					MyHashTable.Builder<String> builder = new MyHashTable.Builder<String>(option, load);
+					for (String word : words)
+						builder.put(word, WordPuzzle.WORD);
+					return builder.build();
+				});
+
+				MyHashTable<String> table = MyHashTable.presized(words.length, option, load);
+				for (String word : words)
+					table.put(word, WordPuzzle.WORD);
+
+				run("table.contains", params, "ns/op", hits.length, () -> {
+					int found = 0;
+					for (String word : hits)
+						if (table.contains(word))
+							found++;
+					return found;
+				});
+				run("table.containsMiss", params, "ns/op", misses.length, () -> {
+					int found = 0;
+					for (String word : misses)
+						if (table.contains(word))
+							found++;
+					return found;
+				});
+				run("table.get", params, "ns/op", hits.length, () -> {
+					int found = 0;
+					for (String word : hits)
+						if (table.get(word) != null)
+							found++;
+					return found;
+				});
+			}
+		}
+	}
+
+	/**
+	 * Latency of every single hit and miss lookup in the word dictionary, as a MyHashTable
+	 * with linear probing at load 0.5 (as WordPuzzle loads it), with Robin Hood probing at
+	 * 0.85, as a CuckooHashTable at 0.9 and as a PerfectHashTable. The keys are looked up
+	 * straight from one char array, as the solvers do, in a shuffled order.
+	 */
+	public void lookupBenchmarks(File dictionaryFile, long seed) throws Exception {
+		String[] tableNames = { "linear load=0.5", "robinHood load=0.85", "cuckoo load=0.9", "perfect" };
+		boolean any = false;
+		for (String tableName : tableNames)
+			any |= selected("lookup.hit", tableName) || selected("lookup.miss", tableName);
+		if (!any)
+			return;
+		DictionaryLoader loader = new DictionaryLoader();
+		String[] words = loader.readWords(dictionaryFile);
+		HashSet<String> wordSet = new HashSet<String>();
+		for (String word : words)
+			wordSet.add(word);
+		ArrayList<String> hits = new ArrayList<String>(wordSet);
+		ArrayList<String> misses = new ArrayList<String>();
+		for (String word : hits) {
+			String miss = new StringBuilder(word).reverse().append('q').toString();
+			if (!wordSet.contains(miss))
+				misses.add(miss);
+		}
+		Random random = new Random(seed);
+		Collections.shuffle(hits, random);
+		Collections.shuffle(misses, random);
+
+		LookupTable<?>[] tables = { new MyHashTable.Builder<String>(MyHashTable.COMPACT).putAll(hits, null).build(),
+				new MyHashTable.Builder<String>(MyHashTable.COMPACT | MyHashTable.ROBIN_HOOD, 0.85).putAll(hits, null).build(),
+				new CuckooHashTable.Builder().putAll(hits, WordPuzzle.WORD).build(),
+				new PerfectHashTable.Builder().putAll(hits, WordPuzzle.WORD).build() };
+
+		for (int k = 0; k < 2; k++) {
+			ArrayList<String> keys = k == 0 ? hits : misses;
+			int[] offsets = new int[keys.size() + 1];
+			StringBuilder all = new StringBuilder();
+			for (int i = 0; i < keys.size(); i++) {
+				offsets[i] = all.length();
+				all.append(keys.get(i));
+			}
+			offsets[keys.size()] = all.length();
+			char[] chars = all.toString().toCharArray();
+
+			for (int t = 0; t < tables.length; t++) {
+				LookupTable<?> table = tables[t];
+				sample(k == 0 ? "lookup.hit" : "lookup.miss", tableNames[t], keys.size(),
+						key -> table.contains(chars, offsets[key], offsets[key + 1] - offsets[key]));
+			}
+		}
+	}
+
+	/**
+	 * WordPuzzle.findWords against findWordsUsingPrefix on square grids of each size,
+	 * with the tables WordPuzzle.main uses, and findWordsUsingPrefix through a ResultCache that
+	 * already holds the grid. findWords is only run up to FIND_WORDS_MAX_SIZE,
+	 * as its time grows with the cube of the side: about 9 s at 256 x 256.
+	 */
+	public void gridBenchmarks(File dictionaryFile, int[] sizes, long seed) throws Exception {
+		DictionaryLoader loader = new DictionaryLoader();
+		BloomFilteredTable<String> dictionary = null;
+		MyHashTable<String> prefixDictionary = null;
+		StartCellFilter startCells = null;
+		long dictionaryVersion = 0;
+
+		for (int size : sizes) {
+			String params = size + "x" + size;
+			if (!selected("grid.findWords", params) && !selected("grid.findWordsUsingPrefix", params)
+					&& !selected("grid.cachedPrefix", params))
+				continue;
+			if (dictionary == null) {
+				dictionary = loader.loadFilteredDictionary(dictionaryFile, MyHashTable.COMPACT, 0.01);
+				prefixDictionary = loader.loadPrefixDictionary(dictionaryFile, MyHashTable.COMPACT | MyHashTable.ROBIN_HOOD, 0.85);
+				startCells = new StartCellFilter(prefixDictionary);
+				dictionaryVersion = ResultCache.dictionaryVersion(dictionaryFile);
+			}
+
+			WordPuzzle<String> puzzle = new WordPuzzle<String>(size, size);
+			puzzle.generateGrid(new CharGrid(new char[size][size]), seed);
+
+			long version = dictionaryVersion;
+			LookupTable<String> words = dictionary;
+			LookupTable<String> prefixes = prefixDictionary;
+			StartCellFilter filter = startCells;
+			if (size <= FIND_WORDS_MAX_SIZE)
+				run("grid.findWords", params, "ms/op", 1, () -> puzzle.findWords(words));
+			else if (selected("grid.findWords", params))
+				System.out.println("# grid.findWords " + params + " skipped: it tries every substring of every line, so a solve takes hours");
+			run("grid.findWordsUsingPrefix", params, "ms/op", 1, () -> puzzle.findWordsUsingPrefix(prefixes, filter));
+			// A grid solved before: the cost of hashing it. Unbounded, so that even the largest result stays
+			ResultCache cache = new ResultCache(Long.MAX_VALUE);
+			run("grid.cachedPrefix", params, "us/op", 1, () -> puzzle.findWordsUsingPrefix(prefixes, filter, cache, version));
+		}
+	}
+
+	/**
+	 * Throughput of PathSolver on PATH_GRID_SIZE square grids, with 3 letter words as in
+	 * Boggle. Every operation solves one of PATH_GRIDS grids, so no grid is solved twice in a row.
+	 */
+	public void pathBenchmarks(File dictionaryFile, long seed) throws Exception {
+		String params = PATH_GRID_SIZE + "x" + PATH_GRID_SIZE;
+		if (!selected("path.findWords", params + " threads="))
+			return;
+		DawgDictionary dawg = DawgDictionary.load(dictionaryFile);
+		Grid[] grids = new Grid[PATH_GRIDS];
+		for (int i = 0; i < grids.length; i++) {
+			WordPuzzle<String> puzzle = new WordPuzzle<String>(PATH_GRID_SIZE, PATH_GRID_SIZE);
+			puzzle.generateGrid(new CharGrid(new char[PATH_GRID_SIZE][PATH_GRID_SIZE]), seed + i);
+			grids[i] = puzzle.getGrid();
+		}
+
+		int processors = Runtime.getRuntime().availableProcessors();
+		for (int threads : processors > 1 ? new int[] { 1, processors } : new int[] { 1 }) {
+			try (PathSolver solver = new PathSolver(dawg, 3, threads)) {
+				int[] next = { 0 };
+				run("path.findWords", params + " threads=" + threads, "ops/s", 1,
+						() -> solver.findWordIds(grids[next[0]++ % grids.length]));
+			}
+		}
+	}
+
+	/**
+	 * Measures one benchmark and prints its result, unless the filter skips it.
+	 * @param name name of the benchmark
+	 * @param params its parameters
+	 * @param units "ns/op" or "ms/op", or "ops/s" for a throughput score
+	 * @param opsPerInvocation operations done by one call of operation, e.g. keys looked up
+	 * @param operation the work to measure
+	 */
+	public void run(String name, String params, String units, int opsPerInvocation, Operation operation) throws Exception {
+		if (!selected(name, params))
+			return;
+		double unitNanos = units.equals("ms/op") ? 1e6 : units.equals("us/op") ? 1e3 : 1;
+		boolean throughput = units.equals("ops/s");
+
+		for (int i = 0; i < warmups; i++)
+			iteration(operation);
+
+		double[] scores = new double[iterations];
+		long calls = 0;
+		long nanos = 0;
+		long gcCount = gcCount();
+		long gcMillis = gcMillis();
+		long allocated = allocatedBytes();
+		for (int i = 0; i < iterations; i++) {
+			long start = System.nanoTime();
+			long n = iteration(operation);
+			long elapsed = System.nanoTime() - start;
+			scores[i] = throughput ? n * opsPerInvocation / (elapsed / 1e9) : elapsed / (double) n / opsPerInvocation / unitNanos;
+			calls += n;
+			nanos += elapsed;
+		}
+		allocated = allocatedBytes() - allocated;
+		gcCount = gcCount() - gcCount;
+		gcMillis = gcMillis() - gcMillis;
+
+		Result result = new Result(name, params, units, scores, allocated / (double) (calls * opsPerInvocation),
+				allocated / 1048576.0 / (nanos / 1e9), gcCount, gcMillis);
+		results.add(result);
+		result.print();
+	}
+
+	/**
+	 * Times every lookup on its own and prints the mean latency with its percentiles, unless the
+	 * filter skips it. An iteration looks every key up once, in order.
+	 * @param name name of the benchmark
+	 * @param params its parameters
+	 * @param keys number of keys
+	 * @param lookup looks one key up
+	 */
+	public void sample(String name, String params, int keys, Lookup lookup) throws Exception {
+		if (!selected(name, params))
+			return;
+		long[] times = new long[keys * iterations];
+		int found = 0;
+		for (int i = 0; i < warmups; i++)
+			for (int key = 0; key < keys; key++)
+				if (lookup.lookup(key))
+					found++;
+
+		double[] scores = new double[iterations];
+		long gcCount = gcCount();
+		long gcMillis = gcMillis();
+		long allocated = allocatedBytes();
+		long total = System.nanoTime();
+		for (int i = 0, n = 0; i < iterations; i++) {
+			long sum = 0;
+			for (int key = 0; key < keys; key++, n++) {
+				long start = System.nanoTime();
+				if (lookup.lookup(key))
+					found++;
+				times[n] = System.nanoTime() - start;
+				sum += times[n];
+			}
+			scores[i] = sum / (double) keys;
+		}
+		total = System.nanoTime() - total;
+		allocated = allocatedBytes() - allocated;
+		gcCount = gcCount() - gcCount;
+		gcMillis = gcMillis() - gcMillis;
+		sink = found;
+
+		Arrays.sort(times);
+		double[] percentiles = new double[PERCENTILES.length];
+		for (int p = 0; p < PERCENTILES.length; p++)
+			percentiles[p] = times[(int) Math.min(times.length - 1, (long) Math.ceil(PERCENTILES[p] * times.length) - 1)];
+
+		Result result = new Result(name, params, "ns/op", scores, allocated / (double) times.length,
+				allocated / 1048576.0 / (total / 1e9), gcCount, gcMillis);
+		result.percentiles = percentiles;
+		results.add(result);
+		result.print();
+	}
+
+	/**
+	 * Writes every result so far as CSV.
+	 */
+	public void writeCsv(File file) throws IOException {
+		try (PrintWriter out = new PrintWriter(file, "UTF-8")) {
+			StringBuilder header = new StringBuilder("benchmark,params,count,score,error,units,allocBytesPerOp,allocMBPerSec,gcCount,gcMillis");
+			for (double p : PERCENTILES)
+				header.append(",p").append(p);
+			out.println(header);
+			for (Result result : results) {
+				StringBuilder row = new StringBuilder(String.format("%s,%s,%d,%.4f,%.4f,%s,%.1f,%.1f,%d,%d", result.name, result.params, result.scores.length,
+						result.mean(), result.error(), result.units, result.allocPerOp, result.allocRate, result.gcCount, result.gcMillis));
+				for (int p = 0; p < PERCENTILES.length; p++)
+					row.append(',').append(result.percentiles == null ? "" : String.format("%.0f", result.percentiles[p]));
+				out.println(row);
+			}
+		}
+	}
+
+	/**
+	 * @return the results measured so far
+	 */
+	public ArrayList<Result> getResults() {
+		return results;
+	}
+
+	/**
+	 * Score and gc profile of one benchmark.
+	 */
+	public static class Result {
+
+		Result(String name, String params, String units, double[] scores, double allocPerOp, double allocRate, long gcCount, long gcMillis) {
+			this.name = name;
+			this.params = params;
+			this.units = units;
+			this.scores = scores;
+			this.allocPerOp = allocPerOp;
+			this.allocRate = allocRate;
+			this.gcCount = gcCount;
+			this.gcMillis = gcMillis;
+		}
+
+		/**
+		 * @return the mean score of the measured iterations
+		 */
+		public double mean() {
+			double sum = 0;
+			for (double score : scores)
+				sum += score;
+			return sum / scores.length;
+		}
+
+		/**
+		 * @return half the width of the 99.9% confidence interval of the mean, or NaN for one iteration
+		 */
+		public double error() {
+			int n = scores.length;
+			if (n < 2)
+				return Double.NaN;
+			double mean = mean();
+			double squares = 0;
+			for (double score : scores)
+				squares += (score - mean) * (score - mean);
+			return studentT999(n - 1) * Math.sqrt(squares / (n - 1) / n);
+		}
+
+		void print() {
+			System.out.println(String.format(ROW_FORMAT, name, params, scores.length, format(mean()), "+-", format(error()), units));
+			if (percentiles != null)
+				for (int p = 0; p < PERCENTILES.length; p++)
+					System.out.println(String.format(ROW_FORMAT, "  :p" + PERCENTILES[p], "", "", format(percentiles[p]), "", "", units));
+			System.out.println(String.format(ROW_FORMAT, "  :gc.alloc.rate.norm", "", "", format(allocPerOp), "", "", "B/op"));
+			System.out.println(String.format(ROW_FORMAT, "  :gc.alloc.rate", "", "", format(allocRate), "", "", "MB/sec"));
+			System.out.println(String.format(ROW_FORMAT, "  :gc.count", "", "", gcCount, "", "", "counts"));
+			System.out.println(String.format(ROW_FORMAT, "  :gc.time", "", "", gcMillis, "", "", "ms"));
+		}
+
+		final String name;
+		final String params;
+		final String units;
+		final double[] scores;
+		final double allocPerOp;		// bytes allocated per operation
+		final double allocRate;		// MB allocated per second
+		final long gcCount;
+		final long gcMillis;
+		double[] percentiles;			// latency at each of PERCENTILES, if every operation was timed
+	}
+
+	/**
+	 * Runs the operation until the iteration time is up.
+	 * @return number of calls
+	 */
+	private long iteration(Operation operation) throws Exception {
+		long start = System.nanoTime();
+		long calls = 0;
+		do {
+			sink = operation.run();
+			calls++;
+		} while (System.nanoTime() - start < iterationNanos);
+		return calls;
+	}
+
+	private boolean selected(String name, String params) {
+		return filter == null || filter.matcher(name + " " + params).find();
+	}
+
+	private static String format(double value) {
+		if (Double.isNaN(value))
+			return "";
+		return value >= 100 ? String.format("%.0f", value) : value >= 1 ? String.format("%.2f", value) : String.format("%.4f", value);
+	}
+
+	/**
+	 * Two sided 99.9% quantile of Student's t distribution.
+	 */
+	private static double studentT999(int degrees) {
+		final double[] t = { 636.6, 31.60, 12.92, 8.610, 6.869, 5.959, 5.408, 5.041, 4.781, 4.587,
+				4.437, 4.318, 4.221, 4.140, 4.073, 4.015, 3.965, 3.922, 3.883, 3.850 };
+		if (degrees <= t.length)
+			return t[degrees - 1];
+		return degrees <= 30 ? 3.646 : degrees <= 60 ? 3.460 : 3.291;
+	}
+
+	private static long gcCount() {
+		long count = 0;
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+			count += Math.max(0, gc.getCollectionCount());
+		return count;
+	}
+
+	private static long gcMillis() {
+		long millis = 0;
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+			millis += Math.max(0, gc.getCollectionTime());
+		return millis;
+	}
+
+	/**
+	 * Bytes allocated by all threads, dead ones included, where the JVM counts them
+	 * (Java 21 and later); else by the current thread.
+	 */
+	private static long allocatedBytes() {
+		try {
+			if (TOTAL_ALLOCATED_BYTES != null)
+				return (Long) TOTAL_ALLOCATED_BYTES.invoke(THREADS);
+			if (THREADS instanceof com.sun.management.ThreadMXBean)
+				return ((com.sun.management.ThreadMXBean) THREADS).getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		catch (ReflectiveOperationException e) {
+			// not counted
+		}
+		return 0;
+	}
+
+	private static Method totalAllocatedBytes() {
+		try {
+			Method method = com.sun.management.ThreadMXBean.class.getMethod("getTotalThreadAllocatedBytes");
+			return (Long) method.invoke(THREADS) >= 0 ? method : null;
+		}
+		catch (ReflectiveOperationException | RuntimeException e) {
+			return null;
+		}
+	}
+
+	private static final int FIND_WORDS_MAX_SIZE = 256;
+	private static final int PATH_GRID_SIZE = 100;
+	private static final int PATH_GRIDS = 8;
+	private static final double[] LOAD_FACTORS = { 0.25, 0.5, 0.75, 0.9 };
+	private static final double[] PERCENTILES = { 0.5, 0.9, 0.99, 0.999, 0.9999, 1.0 };
+	private static final String ROW_FORMAT = "%-28s %-22s %4s %12s %1s %10s  %s";
+	private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+	private static final Method TOTAL_ALLOCATED_BYTES = totalAllocatedBytes();
+
+	/** Results of the operations, so their work is never dead code. */
+	static volatile Object sink;
+
+	private final int warmups;
+	private final int iterations;
+	private final long iterationNanos;
+	private final Pattern filter;
+	private final ArrayList<Result> results = new ArrayList<Result>();
+}
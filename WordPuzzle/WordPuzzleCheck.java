@@ -0,0 +1,301 @@
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+
+
+/**
+ *
+ * @author Gayatri
+ * Self-checks of the tables and solvers against plain reference implementations, so that
+ * the claims of the README about them can be reproduced.
+ *
+ * Usage: java WordPuzzleCheck [dictionary file]   (default Dictionary.txt)
+ *
+ * Every check prints one line when it passes. The first mismatch throws an
+ * IllegalStateException that names the case, so a failing run ends with a stack trace
+ * and a non-zero exit code. The random cases use fixed seeds, so every run checks the
+ * same operations.
+ *
+ */
+
+public class WordPuzzleCheck {
+
+	public static void main(String[] args) throws Exception {
+		File dictionaryFile = new File(args.length > 0 ? args[0] : "Dictionary.txt");
+		long start = System.nanoTime();
+		tableChecks();
+		longestWordsChecks(dictionaryFile);
+		perfectHashChecks(dictionaryFile);
+		solverChecks(dictionaryFile);
+		System.out.println("All checks passed in " + (System.nanoTime() - start) / 1000000 + " ms");
+	}
+
+	/**
+	 * Random put, get, contains and remove on MyHashTable against a HashMap, for every
+	 * layout and probing option at low, default and high load. Keys come from a small
+	 * pool, so keys are removed and put again and clusters form and break up; after every
+	 * batch of operations every key of the pool is looked up. Robin Hood insertion and the
+	 * backward-shift deletion of both probing modes must keep every key reachable.
+	 *
+	 * After every single operation one random key is looked up as well. An INCREMENTAL
+	 * rehash is done within a few puts, so these are the lookups that see both tables
+	 * while entries are being moved. Halfway, finishRehash moves whatever is left.
+	 */
+	public static void tableChecks() {
+		for (int options : TABLE_OPTIONS) {
+			for (double load : TABLE_LOADS) {
+				long operations = checkTable(options, load, new Random(SEED));
+				System.out.println("table " + optionNames(options) + " load=" + load + ": " + operations + " operations match a HashMap");
+			}
+		}
+	}
+
+	/**
+	 * @return the number of operations checked
+	 */
+	private static long checkTable(int options, double load, Random random) {
+		String[] pool = new String[TABLE_KEYS];
+		for (int i = 0; i < pool.length; i++)
+			pool[i] = Integer.toString(random.nextInt(), 36);
+		String[] values = { null, "w", "p" };
+		MyHashTable<String> table = new MyHashTable<String>(MyHashTable.DEFAULT_TABLE_SIZE, options, load);
+		HashMap<String, String> reference = new HashMap<String, String>();
+		String name = optionNames(options) + " load=" + load;
+
+		long operations = 0;
+		for (int batch = 0; batch < TABLE_BATCHES; batch++) {
+			// Mostly puts in the first half, mostly removes in the second, so the table grows and empties
+			int putShare = batch < TABLE_BATCHES / 2 ? 70 : 30;
+			for (int i = 0; i < TABLE_BATCH_OPERATIONS; i++, operations++) {
+				String key = pool[random.nextInt(pool.length)];
+				int op = random.nextInt(100);
+				if (op < putShare) {
+					String value = values[random.nextInt(values.length)];
+					table.put(key, value);
+					reference.put(key, value);
+				}
+				else {
+					boolean removed = table.remove(key);
+					check(removed == reference.containsKey(key), name + ": remove(" + key + ") returned " + removed);
+					reference.remove(key);
+				}
+				// Often while an INCREMENTAL move is under way
+				String probe = pool[random.nextInt(pool.length)];
+				check(Objects.equals(table.get(probe), reference.get(probe)) && table.contains(probe) == reference.containsKey(probe),
+						name + ": lookup of " + probe + " after operation " + operations);
+			}
+			if (batch == TABLE_BATCHES / 2)
+				table.finishRehash();
+			check(table.size() == reference.size(), name + ": size " + table.size() + " instead of " + reference.size());
+			for (String key : pool) {
+				char[] chars = ("#" + key + "#").toCharArray();
+				check(table.contains(key) == reference.containsKey(key), name + ": contains(" + key + ")");
+				check(table.contains(chars, 1, key.length()) == reference.containsKey(key), name + ": contains of the slice " + key);
+				check(Objects.equals(table.get(key), reference.get(key)), name + ": get(" + key + ")");
+				check(Objects.equals(table.get(chars, 1, key.length()), reference.get(key)), name + ": get of the slice " + key);
+			}
+		}
+		for (Map.Entry<String, String> e : reference.entrySet())
+			check(table.remove(e.getKey()), name + ": final remove(" + e.getKey() + ")");
+		check(table.size() == 0, name + ": not empty after removing every key");
+		return operations;
+	}
+
+	/**
+	 * WordPuzzle.findLongestWords against a brute-force answer: every distinct word of
+	 * findWordsUsingPrefix, sorted by length. For grids from 1 x 1 to 512 x 512 and k from 1
+	 * to 100000, with the prefix hash table and with the DAWG as dictionary, the lengths of
+	 * the words returned must be the k longest lengths, every word must be distinct and in
+	 * the grid at the position returned. Which words of the shortest length returned are
+	 * kept depends on the search order, so only their number is compared.
+	 */
+	public static void longestWordsChecks(File dictionaryFile) throws Exception {
+		DictionaryLoader loader = new DictionaryLoader();
+		MyHashTable<String> prefixDictionary = loader.loadPrefixDictionary(dictionaryFile, MyHashTable.COMPACT | MyHashTable.ROBIN_HOOD, 0.85);
+		DawgDictionary dawg = DawgDictionary.load(dictionaryFile);
+		check(loader.getMaxWordLength() == dawg.maxWordLength(), "longest word " + loader.getMaxWordLength() + " against " + dawg.maxWordLength());
+		List<LookupTable<String>> dictionaries = Arrays.<LookupTable<String>>asList(prefixDictionary, dawg);
+		String[] dictionaryNames = { "hash", "dawg" };
+
+		for (int[] size : LONGEST_WORDS_GRIDS) {
+			WordPuzzle<String> puzzle = new WordPuzzle<String>(size[0], size[1]);
+			puzzle.generateGrid(new CharGrid(new char[size[0]][size[1]]), SEED + size[0] * 31 + size[1]);
+			Grid grid = puzzle.getGrid();
+			ArrayList<String> all = new ArrayList<String>(new HashSet<String>(puzzle.findWordsUsingPrefix(prefixDictionary)));
+			Collections.sort(all, (a, b) -> Integer.compare(b.length(), a.length()));
+			HashSet<String> distinct = new HashSet<String>(all);
+
+			for (int d = 0; d < dictionaries.size(); d++) {
+				for (int k : LONGEST_WORDS_KS) {
+					String name = size[0] + "x" + size[1] + " " + dictionaryNames[d] + " k=" + k;
+					List<Match> longest = puzzle.findLongestWords(dictionaries.get(d), loader.getMaxWordLength(), k);
+					check(longest.size() == Math.min(k, all.size()), name + ": " + longest.size() + " words instead of " + Math.min(k, all.size()));
+					HashSet<String> seen = new HashSet<String>();
+					for (int i = 0; i < longest.size(); i++) {
+						Match match = longest.get(i);
+						String word = match.getWord();
+						check(word.length() == all.get(i).length(), name + ": word " + i + " is " + word + ", expected length " + all.get(i).length());
+						check(distinct.contains(word) && seen.add(word), name + ": " + word + " is not a new word of the grid");
+						check(grid.read(match.getRow(), match.getCol(), word.length(), match.getDirection()).equals(word), name + ": " + match + " is not in the grid");
+					}
+				}
+			}
+			System.out.println("longest words " + size[0] + "x" + size[1] + ": " + all.size() + " distinct words, k up to "
+					+ LONGEST_WORDS_KS[LONGEST_WORDS_KS.length - 1] + " match a sort of all of them");
+		}
+	}
+
+	/**
+	 * PerfectHashTable against MyHashTable and a HashMap. Every word of the dictionary must
+	 * be in the perfect word table with the value WordPuzzle.WORD, and every prefix of it
+	 * must have the same value in the perfect prefix table as in the MyHashTable one.
+	 * Random keys of random lengths, some with characters beyond Latin-1 so that the char
+	 * arenas are used, are built with 1 to 256 different values, so that every width of
+	 * packed value ids is covered; then the keys and random probes, almost all of them
+	 * absent, are looked up as Strings and as char slices. An empty table holds nothing.
+	 */
+	public static void perfectHashChecks(File dictionaryFile) throws Exception {
+		DictionaryLoader loader = new DictionaryLoader();
+		String[] words = loader.readWords(dictionaryFile);
+		MyHashTable<String> dictionary = loader.loadDictionary(dictionaryFile, 0);
+		MyHashTable<String> prefixDictionary = loader.loadPrefixDictionary(dictionaryFile, MyHashTable.COMPACT | MyHashTable.ROBIN_HOOD, 0.85);
+		PerfectHashTable perfectDictionary = loader.loadPerfectDictionary(dictionaryFile);
+		PerfectHashTable perfectPrefixDictionary = loader.loadPerfectPrefixDictionary(dictionaryFile);
+		check(perfectDictionary.size() == dictionary.size(), "perfect dictionary size " + perfectDictionary.size() + " instead of " + dictionary.size());
+		check(perfectPrefixDictionary.size() == prefixDictionary.size(),
+				"perfect prefix dictionary size " + perfectPrefixDictionary.size() + " instead of " + prefixDictionary.size());
+		for (String word : words) {
+			check(perfectDictionary.contains(word) == dictionary.contains(word) && WordPuzzle.WORD.equals(perfectDictionary.get(word)),
+					"perfect dictionary lookup of " + word);
+			for (int i = 1; i <= word.length(); i++) {
+				String prefix = word.substring(0, i);
+				check(Objects.equals(perfectPrefixDictionary.get(prefix), prefixDictionary.get(prefix)), "perfect prefix dictionary get(" + prefix + ")");
+			}
+		}
+		System.out.println("perfect hash: " + words.length + " words and their prefixes match MyHashTable");
+
+		Random random = new Random(SEED);
+		for (int valueCount : PERFECT_VALUE_COUNTS) {
+			for (boolean latin1 : new boolean[] { true, false }) {
+				String name = valueCount + " values" + (latin1 ? "" : ", beyond Latin-1");
+				String alphabet = latin1 ? PERFECT_LATIN1_ALPHABET : PERFECT_LATIN1_ALPHABET + PERFECT_WIDE_CHARACTERS;
+				HashMap<String, String> reference = new HashMap<String, String>();
+				PerfectHashTable.Builder builder = new PerfectHashTable.Builder();
+				for (int i = 0; i < PERFECT_KEYS; i++) {
+					String key = randomKey(random, alphabet);
+					while (reference.containsKey(key))
+						key = randomKey(random, alphabet);
+					// Every value is used at least once
+					String value = "v" + (i < valueCount ? i : random.nextInt(valueCount));
+					builder.put(key, value);
+					reference.put(key, value);
+				}
+				PerfectHashTable table = builder.build();
+				check(table.size() == reference.size(), name + ": size " + table.size() + " instead of " + reference.size());
+				for (Map.Entry<String, String> e : reference.entrySet())
+					checkLookup(table, e.getKey(), e.getValue(), name);
+				for (int i = 0; i < PERFECT_PROBES; i++) {
+					String probe = randomKey(random, alphabet);
+					checkLookup(table, probe, reference.get(probe), name);
+				}
+				System.out.println("perfect hash " + name + ": " + reference.size() + " keys and " + PERFECT_PROBES + " probes match a HashMap");
+			}
+		}
+
+		PerfectHashTable empty = new PerfectHashTable.Builder().build();
+		check(empty.size() == 0, "empty perfect table: size " + empty.size());
+		checkLookup(empty, "a", null, "empty perfect table");
+		checkLookup(empty, PERFECT_WIDE_CHARACTERS, null, "empty perfect table");
+		System.out.println("perfect hash: the empty table holds nothing");
+	}
+
+	/**
+	 * The solvers on every dictionary table. findWords must give the same list with a
+	 * MyHashTable, a CuckooHashTable, a PerfectHashTable and the DAWG of the words, and
+	 * findWordsUsingPrefix the same list with the prefix versions of the tables and the DAWG.
+	 * Both methods must also find the same words, up to order.
+	 */
+	public static void solverChecks(File dictionaryFile) throws Exception {
+		DictionaryLoader loader = new DictionaryLoader();
+		DawgDictionary dawg = DawgDictionary.load(dictionaryFile);
+		List<LookupTable<String>> dictionaries = Arrays.<LookupTable<String>>asList(loader.loadDictionary(dictionaryFile, 0),
+				loader.loadCuckooDictionary(dictionaryFile), loader.loadPerfectDictionary(dictionaryFile), dawg);
+		List<LookupTable<String>> prefixDictionaries = Arrays.<LookupTable<String>>asList(
+				loader.loadPrefixDictionary(dictionaryFile, MyHashTable.COMPACT | MyHashTable.ROBIN_HOOD, 0.85),
+				loader.loadCuckooPrefixDictionary(dictionaryFile), loader.loadPerfectPrefixDictionary(dictionaryFile), dawg);
+		String[] dictionaryNames = { "MyHashTable", "CuckooHashTable", "PerfectHashTable", "DawgDictionary" };
+
+		for (int[] size : SOLVER_GRIDS) {
+			WordPuzzle<String> puzzle = new WordPuzzle<String>(size[0], size[1]);
+			puzzle.generateGrid(new CharGrid(new char[size[0]][size[1]]), SEED + size[0] * 31 + size[1]);
+			String grid = size[0] + "x" + size[1];
+			ArrayList<String> words = puzzle.findWords(dictionaries.get(0));
+			ArrayList<String> prefixWords = puzzle.findWordsUsingPrefix(prefixDictionaries.get(0));
+			for (int d = 1; d < dictionaries.size(); d++) {
+				check(puzzle.findWords(dictionaries.get(d)).equals(words), grid + ": findWords differs on " + dictionaryNames[d]);
+				check(puzzle.findWordsUsingPrefix(prefixDictionaries.get(d)).equals(prefixWords), grid + ": findWordsUsingPrefix differs on " + dictionaryNames[d]);
+			}
+			ArrayList<String> sorted = new ArrayList<String>(words);
+			ArrayList<String> prefixSorted = new ArrayList<String>(prefixWords);
+			Collections.sort(sorted);
+			Collections.sort(prefixSorted);
+			check(sorted.equals(prefixSorted), grid + ": findWords and findWordsUsingPrefix find different words");
+			System.out.println("solvers " + grid + ": " + words.size() + " matches agree on all " + dictionaries.size() + " dictionaries");
+		}
+	}
+
+	private static void checkLookup(PerfectHashTable table, String key, String value, String name) {
+		char[] chars = ("#" + key + "#").toCharArray();
+		check(Objects.equals(table.get(key), value) && table.contains(key) == (value != null), name + ": lookup of " + key);
+		check(Objects.equals(table.get(chars, 1, key.length()), value) && table.contains(chars, 1, key.length()) == (value != null),
+				name + ": lookup of the slice " + key);
+	}
+
+	private static String randomKey(Random random, String alphabet) {
+		char[] key = new char[1 + random.nextInt(PERFECT_MAX_KEY_LENGTH)];
+		for (int i = 0; i < key.length; i++)
+			key[i] = alphabet.charAt(random.nextInt(alphabet.length()));
+		return new String(key);
+	}
+
+	private static String optionNames(int options) {
+		ArrayList<String> names = new ArrayList<String>();
+		if ((options & MyHashTable.COMPACT) != 0)
+			names.add("compact");
+		if ((options & MyHashTable.ROBIN_HOOD) != 0)
+			names.add("robinHood");
+		if ((options & MyHashTable.INCREMENTAL) != 0)
+			names.add("incremental");
+		return names.isEmpty() ? "linear" : String.join("+", names);
+	}
+
+	private static void check(boolean condition, String message) {
+		if (!condition)
+			throw new IllegalStateException("Check failed: " + message);
+	}
+
+	private static final long SEED = 42;
+	private static final int[] TABLE_OPTIONS = { 0, MyHashTable.COMPACT, MyHashTable.ROBIN_HOOD, MyHashTable.COMPACT | MyHashTable.ROBIN_HOOD,
+			MyHashTable.INCREMENTAL, MyHashTable.COMPACT | MyHashTable.INCREMENTAL, MyHashTable.ROBIN_HOOD | MyHashTable.INCREMENTAL,
+			MyHashTable.COMPACT | MyHashTable.ROBIN_HOOD | MyHashTable.INCREMENTAL };
+	private static final double[] TABLE_LOADS = { 0.05, 0.5, 0.9 };
+	private static final int TABLE_KEYS = 5000;
+	private static final int TABLE_BATCHES = 20;
+	private static final int TABLE_BATCH_OPERATIONS = 10000;
+	private static final int[][] LONGEST_WORDS_GRIDS = { { 1, 1 }, { 1, 30 }, { 30, 1 }, { 7, 13 }, { 64, 64 }, { 512, 512 } };
+	private static final int[] LONGEST_WORDS_KS = { 1, 10, 1000, 100000 };
+	private static final int[] PERFECT_VALUE_COUNTS = { 1, 2, 3, 5, 17, 256 };
+	private static final String PERFECT_LATIN1_ALPHABET = "abcdefghij\u00e9\u00ff";
+	private static final String PERFECT_WIDE_CHARACTERS = "\u0436\u4e2d";
+	private static final int PERFECT_KEYS = 20000;
+	private static final int PERFECT_PROBES = 20000;
+	private static final int PERFECT_MAX_KEY_LENGTH = 8;
+	private static final int[][] SOLVER_GRIDS = { { 1, 1 }, { 7, 13 }, { 64, 64 }, { 256, 256 } };
+}
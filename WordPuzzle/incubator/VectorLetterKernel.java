@@ -0,0 +1,82 @@
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+
+/**
+ *
+ * @author Gayatri
+ * LetterKernel on the incubating Vector API. It lives apart from the other classes
+ * because it only compiles and runs with the jdk.incubator.vector module:
+ *
+ *   javac --add-modules jdk.incubator.vector -d out *.java incubator/*.java
+ *   java --add-modules jdk.incubator.vector -cp out WordPuzzle
+ *
+ * StartCellFilter loads it when the module is present and uses ScalarLetterKernel otherwise.
+ *
+ * Set membership of a byte b is looked up with two 16 entry tables indexed by its low
+ * nibble: entry lo of LOW holds bit h for every letter (h << 4 | lo) of the set with
+ * h < 8, entry lo of HIGH the same for h >= 8. Both lookups and the bit test are lane
+ * wise, so a whole vector of letters is classified without a branch.
+ *
+ */
+
+class VectorLetterKernel implements LetterKernel {
+
+	/**
+	 * @param set 256 bit set of letters
+	 */
+	VectorLetterKernel(long[] set) {
+		this.set = set.clone();
+		byte[] low = new byte[SPECIES.length()];
+		byte[] high = new byte[SPECIES.length()];
+		for (int b = 0; b < 256; b++) {
+			if ((set[b >>> 6] & (1L << b)) == 0)
+				continue;
+			for (int lane = b & 15; lane < low.length; lane += 16) {	// repeat the tables in every 16 lanes
+				if (b < 128)
+					low[lane] |= (byte) (1 << (b >>> 4));
+				else
+					high[lane] |= (byte) (1 << ((b >>> 4) - 8));
+			}
+		}
+		lowTable = ByteVector.fromArray(SPECIES, low, 0);
+		highTable = ByteVector.fromArray(SPECIES, high, 0);
+	}
+
+	public void members(byte[] letters, int count, long[] out) {
+		int i = 0;
+		int bound = SPECIES.loopBound(count);
+		for (; i < bound; i += SPECIES.length()) {
+			ByteVector v = ByteVector.fromArray(SPECIES, letters, i);
+			ByteVector lo = v.and((byte) 15);
+			ByteVector hi = v.lanewise(VectorOperators.LSHR, 4);
+			VectorMask<Byte> upper = hi.compare(VectorOperators.GE, (byte) 8);
+			ByteVector row = lo.selectFrom(lowTable).blend(lo.selectFrom(highTable), upper);
+			ByteVector bit = hi.and((byte) 7).selectFrom(POWERS);
+			VectorMask<Byte> hit = row.and(bit).compare(VectorOperators.NE, (byte) 0);
+			out[i >>> 6] |= hit.toLong() << (i & 63);
+		}
+		for (; i < count; i++) {
+			int b = letters[i] & 0xFF;
+			if ((set[b >>> 6] & (1L << b)) != 0)
+				out[i >>> 6] |= 1L << i;
+		}
+	}
+
+	// 16 to 64 lanes: enough for the 16 entry tables, and one long of out per vector
+	private static final VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_PREFERRED.length() < 16 ? ByteVector.SPECIES_128
+			: ByteVector.SPECIES_PREFERRED.length() > 64 ? ByteVector.SPECIES_512 : ByteVector.SPECIES_PREFERRED;
+	private static final ByteVector POWERS;
+	static {
+		byte[] powers = new byte[SPECIES.length()];
+		for (int lane = 0; lane < powers.length; lane++)
+			powers[lane] = (byte) (1 << (lane & 7));
+		POWERS = ByteVector.fromArray(SPECIES, powers, 0);
+	}
+
+	private final long[] set;
+	private final ByteVector lowTable;
+	private final ByteVector highTable;
+}